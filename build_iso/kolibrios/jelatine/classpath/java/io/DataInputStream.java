@@ -58,6 +58,20 @@ public class DataInputStream extends InputStream implements DataInput
 {
     // Byte buffer, used to make primitive read calls more efficient.
     private byte[] buf = new byte [8];
+
+    // Size of the blocks read by the bulk primitive readers, a multiple of
+    // the size of every primitive.
+    private static final int BLOCK_SIZE = 512;
+
+    // Largest scratch buffers kept around by readUTF() between calls.
+    private static final int MAX_UTF_SCRATCH = 1024;
+
+    // Block buffer of the bulk primitive readers, allocated on first use.
+    private byte[] block;
+
+    // Scratch buffers of readUTF(), allocated on first use.
+    private byte[] utfBytes;
+    private char[] utfChars;
   
     /**
      * The embedded InputStream object 
@@ -498,6 +512,197 @@ public class DataInputStream extends InputStream implements DataInput
         return Double.longBitsToDouble (readLong ());
     }
 
+    /**
+     * This method reads <code>len</code> <code>short</code> values into the
+     * specified array, each one encoded as read by <code>readShort()</code>.
+     * The values are read from the underlying stream in large blocks and
+     * decoded in place.
+     *
+     * @param values The array in which to store the values
+     * @param offset The index of the first value to store
+     * @param len The number of values to read
+     *
+     * @throws EOFException If end of file is reached before reading all
+     * the values
+     * @throws IOException If any other error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #readShort()
+     */
+    public final void readShorts(short[] values, int offset, int len)
+        throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        byte[] b = getBlock();
+
+        while (len > 0)
+        {
+            int n = (len < BLOCK_SIZE / 2) ? len : BLOCK_SIZE / 2;
+
+            readFully(b, 0, n * 2);
+
+            for (int i = 0, pos = 0; i < n; i++, pos += 2)
+                values[offset + i] = (short) ((b [pos] << 8)
+                    | (b [pos + 1] & 0xff));
+
+            offset += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * This method reads <code>len</code> <code>int</code> values into the
+     * specified array, each one encoded as read by <code>readInt()</code>.
+     * The values are read from the underlying stream in large blocks and
+     * decoded in place.
+     *
+     * @param values The array in which to store the values
+     * @param offset The index of the first value to store
+     * @param len The number of values to read
+     *
+     * @throws EOFException If end of file is reached before reading all
+     * the values
+     * @throws IOException If any other error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #readInt()
+     */
+    public final void readInts(int[] values, int offset, int len)
+        throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        byte[] b = getBlock();
+
+        while (len > 0)
+        {
+            int n = (len < BLOCK_SIZE / 4) ? len : BLOCK_SIZE / 4;
+
+            readFully(b, 0, n * 4);
+
+            for (int i = 0; i < n; i++)
+                values[offset + i] = getInt(b, i * 4);
+
+            offset += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * This method reads <code>len</code> <code>long</code> values into the
+     * specified array, each one encoded as read by <code>readLong()</code>.
+     * The values are read from the underlying stream in large blocks and
+     * decoded in place.
+     *
+     * @param values The array in which to store the values
+     * @param offset The index of the first value to store
+     * @param len The number of values to read
+     *
+     * @throws EOFException If end of file is reached before reading all
+     * the values
+     * @throws IOException If any other error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #readLong()
+     */
+    public final void readLongs(long[] values, int offset, int len)
+        throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        byte[] b = getBlock();
+
+        while (len > 0)
+        {
+            int n = (len < BLOCK_SIZE / 8) ? len : BLOCK_SIZE / 8;
+
+            readFully(b, 0, n * 8);
+
+            for (int i = 0; i < n; i++)
+                values[offset + i] = getLong(b, i * 8);
+
+            offset += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * This method reads <code>len</code> <code>float</code> values into the
+     * specified array, each one encoded as read by <code>readFloat()</code>.
+     * The values are read from the underlying stream in large blocks and
+     * decoded in place.
+     *
+     * @param values The array in which to store the values
+     * @param offset The index of the first value to store
+     * @param len The number of values to read
+     *
+     * @throws EOFException If end of file is reached before reading all
+     * the values
+     * @throws IOException If any other error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #readFloat()
+     */
+    public final void readFloats(float[] values, int offset, int len)
+        throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        byte[] b = getBlock();
+
+        while (len > 0)
+        {
+            int n = (len < BLOCK_SIZE / 4) ? len : BLOCK_SIZE / 4;
+
+            readFully(b, 0, n * 4);
+
+            for (int i = 0; i < n; i++)
+                values[offset + i] = Float.intBitsToFloat(getInt(b, i * 4));
+
+            offset += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * This method reads <code>len</code> <code>double</code> values into the
+     * specified array, each one encoded as read by <code>readDouble()</code>.
+     * The values are read from the underlying stream in large blocks and
+     * decoded in place.
+     *
+     * @param values The array in which to store the values
+     * @param offset The index of the first value to store
+     * @param len The number of values to read
+     *
+     * @throws EOFException If end of file is reached before reading all
+     * the values
+     * @throws IOException If any other error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #readDouble()
+     */
+    public final void readDoubles(double[] values, int offset, int len)
+        throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        byte[] b = getBlock();
+
+        while (len > 0)
+        {
+            int n = (len < BLOCK_SIZE / 8) ? len : BLOCK_SIZE / 8;
+
+            readFully(b, 0, n * 8);
+
+            for (int i = 0; i < n; i++)
+                values[offset + i] = Double.longBitsToDouble(getLong(b, i * 8));
+
+            offset += n;
+            len -= n;
+        }
+    }
+
     /**
      * This method reads a <code>String</code> from an input stream that
      * is encoded in a modified UTF-8 format.  This format has a leading
@@ -571,7 +776,30 @@ public class DataInputStream extends InputStream implements DataInput
      */
     public final String readUTF() throws IOException
     {
-        return readUTF(this);
+        final int UTFlen = readUnsignedShort ();
+
+        // Short strings are decoded in per-stream scratch buffers so that
+        // the only allocations are the String and its character array
+        byte[] bytes = utfBytes;
+        char[] chars = utfChars;
+
+        if (bytes == null || bytes.length < UTFlen)
+        {
+            bytes = new byte [UTFlen];
+            chars = new char [UTFlen];
+
+            if (UTFlen <= MAX_UTF_SCRATCH)
+            {
+                utfBytes = bytes;
+                utfChars = chars;
+            }
+        }
+
+        readFully (bytes, 0, UTFlen);
+
+        int count = convertFromUTF (bytes, UTFlen, chars);
+
+        return new String (chars, 0, count);
     }
 
     /**
@@ -588,6 +816,9 @@ public class DataInputStream extends InputStream implements DataInput
      */
     public static final String readUTF(DataInput in) throws IOException
     {
+        if (in instanceof DataInputStream)
+            return ((DataInputStream) in).readUTF();
+
         final int UTFlen = in.readUnsignedShort ();
     
         byte[] buf = new byte [UTFlen];
@@ -598,7 +829,10 @@ public class DataInputStream extends InputStream implements DataInput
         // could be thrown earlier.  The former is a bit cleaner.
         in.readFully (buf, 0, UTFlen);
 
-        return convertFromUTF (buf);
+        char[] chars = new char [UTFlen];
+        int count = convertFromUTF (buf, UTFlen, chars);
+
+        return new String (chars, 0, count);
     }
     
     /**
@@ -723,41 +957,67 @@ public class DataInputStream extends InputStream implements DataInput
             ((long)(buf [7] & 0xff)));  
     }
 
+    private static int getInt(byte[] b, int pos)
+    {
+        return (((b [pos] & 0xff) << 24)
+            | ((b [pos + 1] & 0xff) << 16)
+            | ((b [pos + 2] & 0xff) << 8)
+            | (b [pos + 3] & 0xff));
+    }
+
+    private static long getLong(byte[] b, int pos)
+    {
+        return (((long) getInt(b, pos)) << 32)
+            | (getInt(b, pos + 4) & 0xFFFFFFFFL);
+    }
+
+    private static void checkRange(int length, int offset, int len)
+    {
+        if (offset < 0 || len < 0 || offset > length - len)
+            throw new IndexOutOfBoundsException();
+    }
+
+    private byte[] getBlock()
+    {
+        if (block == null)
+            block = new byte [BLOCK_SIZE];
+
+        return block;
+    }
+
     // FIXME: This method should be re-thought.  I suspect we have multiple
     // UTF-8 decoders floating around.  We should use the standard charset
     // converters, maybe and adding a direct call into one of the new
     // NIO converters for a super-fast UTF8 decode.
-    private static String convertFromUTF(byte[] buf)
+    private static int convertFromUTF(byte[] buf, int len, char[] chars)
         throws EOFException, UTFDataFormatException
     {
-        // Give StringBuffer an initial estimated size to avoid 
-        // enlarge buffer frequently
-        StringBuffer strbuf = new StringBuffer (buf.length / 2 + 2);
+        int n = 0;
 
-        for (int i = 0; i < buf.length; )
+        for (int i = 0; i < len; )
         {
              if ((buf [i] & 0x80) == 0) // bit pattern 0xxxxxxx
-                 strbuf.append ((char) (buf [i++] & 0xFF));
+                 chars [n++] = (char) (buf [i++] & 0xFF);
              else if ((buf [i] & 0xE0) == 0xC0) // bit pattern 110xxxxx
              {
-                 if (i + 1 >= buf.length || (buf [i + 1] & 0xC0) != 0x80)
+                 if (i + 1 >= len || (buf [i + 1] & 0xC0) != 0x80)
                      throw new UTFDataFormatException ();
 
-                 strbuf.append((char) (((buf [i++] & 0x1F) << 6)
-                    | (buf [i++] & 0x3F)));
+                 chars [n++] = (char) (((buf [i++] & 0x1F) << 6)
+                    | (buf [i++] & 0x3F));
              }
              else if ((buf [i] & 0xF0) == 0xE0) // bit pattern 1110xxxx
              {
-                 if (i + 2 >= buf.length
+                 if (i + 2 >= len
                     || (buf [i + 1] & 0xC0) != 0x80
                     || (buf [i + 2] & 0xC0) != 0x80)
                  {
                     throw new UTFDataFormatException ();
                  }
 
-                 strbuf.append((char) (((buf [i++] & 0x0F) << 12)
+                 chars [n++] = (char) (((buf [i++] & 0x0F) << 12)
                     | ((buf [i++] & 0x3F) << 6)
-                    | (buf [i++] & 0x3F)));
+                    | (buf [i++] & 0x3F));
              }
              else
              {
@@ -767,6 +1027,6 @@ public class DataInputStream extends InputStream implements DataInput
              }
         }
 
-        return strbuf.toString();
+        return n;
     }
 }
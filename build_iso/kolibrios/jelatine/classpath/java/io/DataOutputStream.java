@@ -55,6 +55,17 @@ public class DataOutputStream extends OutputStream implements DataOutput
      */
     protected OutputStream out;
 
+    /**
+     * Size of the scratch buffer, a multiple of the size of every primitive
+     */
+    private static final int SCRATCH_SIZE = 512;
+
+    /**
+     * Scratch buffer used to encode primitive values so that they can be
+     * passed to the underlying stream with a single write
+     */
+    private final byte[] scratch = new byte[SCRATCH_SIZE];
+
     /**
      * This method initializes an instance of <code>DataOutputStream</code> to
      * write its data to the specified underlying <code>OutputStream</code>
@@ -195,8 +206,8 @@ public class DataOutputStream extends OutputStream implements DataOutput
      */
     public final synchronized void writeShort(int value) throws IOException
     {
-        out.write((byte) (0xff & (value >> 8)));
-        out.write((byte) (0xff & value));
+        putShort(scratch, 0, value);
+        out.write(scratch, 0, 2);
     }
 
     /**
@@ -221,8 +232,8 @@ public class DataOutputStream extends OutputStream implements DataOutput
      */
     public final synchronized void writeChar(int value) throws IOException
     {
-        out.write((byte) (0xff & (value >> 8)));
-        out.write((byte) (0xff & value));
+        putShort(scratch, 0, value);
+        out.write(scratch, 0, 2);
     }
 
     /**
@@ -247,10 +258,8 @@ public class DataOutputStream extends OutputStream implements DataOutput
      */
     public final synchronized void writeInt(int value) throws IOException
     {
-        out.write((byte) (0xff & (value >> 24)));
-        out.write((byte) (0xff & (value >> 16)));
-        out.write((byte) (0xff & (value >>  8)));
-        out.write((byte) (0xff & value));
+        putInt(scratch, 0, value);
+        out.write(scratch, 0, 4);
     }
 
     /**
@@ -279,14 +288,8 @@ public class DataOutputStream extends OutputStream implements DataOutput
      */
     public final synchronized void writeLong(long value) throws IOException
     {
-        out.write((byte) (0xff & (value >> 56)));
-        out.write((byte) (0xff & (value>> 48)));
-        out.write((byte) (0xff & (value>> 40)));
-        out.write((byte) (0xff & (value>> 32)));
-        out.write((byte) (0xff & (value>> 24)));
-        out.write((byte) (0xff & (value>> 16)));
-        out.write((byte) (0xff & (value>>  8)));
-        out.write((byte) (0xff & value));
+        putLong(scratch, 0, value);
+        out.write(scratch, 0, 8);
     }
 
     /**
@@ -347,12 +350,215 @@ public class DataOutputStream extends OutputStream implements DataOutput
      *
      * @throws IOException If an error occurs
      */
-    public final void writeChars(String value) throws IOException
+    public final synchronized void writeChars(String value) throws IOException
     {
         int len = value.length();
-    
+        int pos = 0;
+
         for (int i = 0; i < len; ++i)
-            writeChar (value.charAt(i));
+        {
+            if (pos == SCRATCH_SIZE)
+            {
+                out.write(scratch, 0, pos);
+                pos = 0;
+            }
+
+            putShort(scratch, pos, value.charAt(i));
+            pos += 2;
+        }
+
+        if (pos > 0)
+            out.write(scratch, 0, pos);
+    }
+
+    /**
+     * This method writes <code>len</code> <code>short</code> values from the
+     * specified array, each one encoded as by <code>writeShort()</code>.
+     * The values are encoded in large chunks, each passed to the underlying
+     * stream with a single write.
+     *
+     * @param values The array holding the values to write
+     * @param offset The index of the first value to write
+     * @param len The number of values to write
+     *
+     * @throws IOException If an error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #writeShort(int)
+     */
+    public final synchronized void writeShorts(short[] values, int offset,
+        int len) throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        int pos = 0;
+
+        for (int i = offset; i < offset + len; i++)
+        {
+            if (pos == SCRATCH_SIZE)
+            {
+                out.write(scratch, 0, pos);
+                pos = 0;
+            }
+
+            putShort(scratch, pos, values[i]);
+            pos += 2;
+        }
+
+        if (pos > 0)
+            out.write(scratch, 0, pos);
+    }
+
+    /**
+     * This method writes <code>len</code> <code>int</code> values from the
+     * specified array, each one encoded as by <code>writeInt()</code>.
+     * The values are encoded in large chunks, each passed to the underlying
+     * stream with a single write.
+     *
+     * @param values The array holding the values to write
+     * @param offset The index of the first value to write
+     * @param len The number of values to write
+     *
+     * @throws IOException If an error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #writeInt(int)
+     */
+    public final synchronized void writeInts(int[] values, int offset,
+        int len) throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        int pos = 0;
+
+        for (int i = offset; i < offset + len; i++)
+        {
+            if (pos == SCRATCH_SIZE)
+            {
+                out.write(scratch, 0, pos);
+                pos = 0;
+            }
+
+            putInt(scratch, pos, values[i]);
+            pos += 4;
+        }
+
+        if (pos > 0)
+            out.write(scratch, 0, pos);
+    }
+
+    /**
+     * This method writes <code>len</code> <code>long</code> values from the
+     * specified array, each one encoded as by <code>writeLong()</code>.
+     * The values are encoded in large chunks, each passed to the underlying
+     * stream with a single write.
+     *
+     * @param values The array holding the values to write
+     * @param offset The index of the first value to write
+     * @param len The number of values to write
+     *
+     * @throws IOException If an error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #writeLong(long)
+     */
+    public final synchronized void writeLongs(long[] values, int offset,
+        int len) throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        int pos = 0;
+
+        for (int i = offset; i < offset + len; i++)
+        {
+            if (pos == SCRATCH_SIZE)
+            {
+                out.write(scratch, 0, pos);
+                pos = 0;
+            }
+
+            putLong(scratch, pos, values[i]);
+            pos += 8;
+        }
+
+        if (pos > 0)
+            out.write(scratch, 0, pos);
+    }
+
+    /**
+     * This method writes <code>len</code> <code>float</code> values from the
+     * specified array, each one encoded as by <code>writeFloat()</code>.
+     * The values are encoded in large chunks, each passed to the underlying
+     * stream with a single write.
+     *
+     * @param values The array holding the values to write
+     * @param offset The index of the first value to write
+     * @param len The number of values to write
+     *
+     * @throws IOException If an error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #writeFloat(float)
+     */
+    public final synchronized void writeFloats(float[] values, int offset,
+        int len) throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        int pos = 0;
+
+        for (int i = offset; i < offset + len; i++)
+        {
+            if (pos == SCRATCH_SIZE)
+            {
+                out.write(scratch, 0, pos);
+                pos = 0;
+            }
+
+            putInt(scratch, pos, Float.floatToIntBits(values[i]));
+            pos += 4;
+        }
+
+        if (pos > 0)
+            out.write(scratch, 0, pos);
+    }
+
+    /**
+     * This method writes <code>len</code> <code>double</code> values from the
+     * specified array, each one encoded as by <code>writeDouble()</code>.
+     * The values are encoded in large chunks, each passed to the underlying
+     * stream with a single write.
+     *
+     * @param values The array holding the values to write
+     * @param offset The index of the first value to write
+     * @param len The number of values to write
+     *
+     * @throws IOException If an error occurs
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     *
+     * @see #writeDouble(double)
+     */
+    public final synchronized void writeDoubles(double[] values, int offset,
+        int len) throws IOException
+    {
+        checkRange(values.length, offset, len);
+
+        int pos = 0;
+
+        for (int i = offset; i < offset + len; i++)
+        {
+            if (pos == SCRATCH_SIZE)
+            {
+                out.write(scratch, 0, pos);
+                pos = 0;
+            }
+
+            putLong(scratch, pos, Double.doubleToLongBits(values[i]));
+            pos += 8;
+        }
+
+        if (pos > 0)
+            out.write(scratch, 0, pos);
     }
 
     /**
@@ -407,8 +613,11 @@ public class DataOutputStream extends OutputStream implements DataOutput
         if (sum > 65535)
             throw new UTFDataFormatException();
 
-        int pos = 0;
-        byte[] buf = new byte[sum];
+        // The length prefix and the characters are written together
+        int pos = 2;
+        byte[] buf = new byte[sum + 2];
+
+        putShort(buf, 0, sum);
 
         for (int i = 0; i < len; ++i)
         {
@@ -432,8 +641,33 @@ public class DataOutputStream extends OutputStream implements DataOutput
             }
         }
     
-        writeShort(sum);
-        write(buf, 0, sum);
+        out.write(buf, 0, sum + 2);
+    }
+
+    private static void checkRange(int length, int offset, int len)
+    {
+        if (offset < 0 || len < 0 || offset > length - len)
+            throw new IndexOutOfBoundsException();
+    }
+
+    private static void putShort(byte[] buf, int pos, int value)
+    {
+        buf[pos] = (byte) (value >> 8);
+        buf[pos + 1] = (byte) value;
+    }
+
+    private static void putInt(byte[] buf, int pos, int value)
+    {
+        buf[pos] = (byte) (value >> 24);
+        buf[pos + 1] = (byte) (value >> 16);
+        buf[pos + 2] = (byte) (value >> 8);
+        buf[pos + 3] = (byte) value;
+    }
+
+    private static void putLong(byte[] buf, int pos, long value)
+    {
+        putInt(buf, pos, (int) (value >> 32));
+        putInt(buf, pos + 4, (int) value);
     }
 } // class DataOutputStream
 
@@ -38,6 +38,9 @@ exception statement from your version. */
 
 package java.io;
 
+import jelatine.io.Charsets;
+import jelatine.io.Codec;
+
 /**
  * This class reads characters from a byte input stream.   The characters
  * read are converted from bytes in the underlying stream by a
@@ -80,6 +83,51 @@ public class InputStreamReader extends Reader
      */
     private InputStream in;
 
+    /**
+     * The codec used to decode the bytes read from the input stream.
+     */
+    private Codec codec;
+
+    /**
+     * Maximum number of bytes read from the input stream at a time.
+     */
+    private static final int MAX_CHUNK = 8192;
+
+    /**
+     * Buffer receiving the bytes read from the input stream.  Its first
+     * <code>byteCount</code> bytes are the tail of an incomplete multi-byte
+     * sequence carried over from the previous read.
+     */
+    private byte[] bytes;
+
+    /**
+     * Number of carried over bytes at the start of <code>bytes</code>.
+     */
+    private int byteCount;
+
+    /**
+     * Characters decoded but not yet returned to the caller.  A read may
+     * decode more characters than requested when it completes a sequence
+     * carried over from the previous one or when a sequence decodes to a
+     * surrogate pair.
+     */
+    private char[] chars;
+
+    /**
+     * Index of the next character to return from <code>chars</code>.
+     */
+    private int charPos;
+
+    /**
+     * Number of valid characters in <code>chars</code>.
+     */
+    private int charCount;
+
+    /**
+     * Scratch buffer used by the single character <code>read()</code>.
+     */
+    private final char[] single = new char[1];
+
     /**
      * This method initializes a new instance of <code>InputStreamReader</code>
      * to read from the specified stream using the default encoding.
@@ -89,6 +137,7 @@ public class InputStreamReader extends Reader
     public InputStreamReader(InputStream in)
     {
         this.in = in;
+        this.codec = Charsets.getDefault();
     }
 
     /**
@@ -106,13 +155,7 @@ public class InputStreamReader extends Reader
     public InputStreamReader(InputStream in, String encoding)
         throws UnsupportedEncodingException
     {
-        if (!encoding.equals("ISO8859_1")
-            && !encoding.equals("US_ASCII")
-            && !encoding.equals("UTF-8"))
-        {
-            throw new UnsupportedEncodingException();
-        }
-
+        this.codec = Charsets.forName(encoding);
         this.in = in;
     }
 
@@ -129,16 +172,19 @@ public class InputStreamReader extends Reader
      */
     public int read() throws IOException
     {
-        char[] buf = new char[1];
-        int count = read(buf, 0, 1);
+        synchronized (lock)
+        {
+            int count = read(single, 0, 1);
 
-        return count > 0 ? buf[0] : -1;
+            return count > 0 ? single[0] : -1;
+        }
     }
 
     /**
      * This method reads up to <code>length</code> characters from the stream into
      * the specified array starting at index <code>offset</code> into the
-     * array.
+     * array.  A multi-byte sequence split between two reads of the
+     * underlying stream is carried over and decoded once it is complete.
      *
      * @param buf The character array to recieve the data read
      * @param offset The offset into the array to start storing characters
@@ -150,16 +196,90 @@ public class InputStreamReader extends Reader
      */
     public int read(char[] buf, int offset, int length) throws IOException
     {
-        if (in == null)
-            throw new IOException("Reader has been closed");
+        synchronized (lock)
+        {
+            if (in == null)
+                throw new IOException("Reader has been closed");
+
+            if (offset < 0 || length < 0 || offset > buf.length - length)
+                throw new IndexOutOfBoundsException();
+
+            if (length == 0)
+                return 0;
+
+            if (charPos == charCount)
+            {
+                int count = fill(length);
+
+                if (count <= 0)
+                    return count;
+            }
+
+            int n = charCount - charPos;
+
+            if (n > length)
+                n = length;
+
+            System.arraycopy(chars, charPos, buf, offset, n);
+            charPos += n;
+            return n;
+        }
+    }
+
+    /**
+     * Reads at most <code>length</code> bytes from the underlying stream
+     * and decodes the complete sequences among them, together with the
+     * bytes carried over from the previous read.
+     *
+     * @return The number of decoded characters, 0 if the underlying stream
+     * returned no data or -1 at the end of the stream
+     */
+    private int fill(int length) throws IOException
+    {
+        if (length > MAX_CHUNK)
+            length = MAX_CHUNK;
+
+        charPos = 0;
+        charCount = 0;
+
+        while (charCount == 0)
+        {
+            if (bytes == null || bytes.length < byteCount + length)
+            {
+                byte[] nb = new byte[byteCount + length];
+
+                if (byteCount > 0)
+                    System.arraycopy(bytes, 0, nb, 0, byteCount);
+
+                bytes = nb;
+                chars = new char[nb.length];
+            }
 
-        byte[] bytes = new byte[length];
-        int read = in.read(bytes);
+            int n = in.read(bytes, byteCount, length);
 
-        for (int i = 0; i < read; i++)
-            buf[offset+i] = (char)(bytes[i]&0xFF);
+            if (n < 0)
+            {
+                if (byteCount == 0)
+                    return -1;
 
-        return read;
+                // Decode whatever incomplete sequence is left
+                charCount = codec.decode(bytes, 0, byteCount, chars, 0);
+                byteCount = 0;
+            }
+            else if (n == 0)
+                return 0;
+            else
+            {
+                int total = byteCount + n;
+                int complete = codec.completeLength(bytes, 0, total);
+
+                charCount = codec.decode(bytes, 0, complete, chars, 0);
+                byteCount = total - complete;
+                System.arraycopy(bytes, complete, bytes, 0, byteCount);
+            }
+        }
+
+        return charCount;
     }
 
     /**
@@ -201,7 +321,7 @@ public class InputStreamReader extends Reader
         if (in == null)
             throw new IOException();
 
-        return in.available() != 0;
+        return charPos < charCount || in.available() != 0;
     }
 
     /**
@@ -217,13 +337,20 @@ public class InputStreamReader extends Reader
     }
 
     /**
-     * Resets the underlying stream to the last marked position
+     * Resets the underlying stream to the last marked position and drops
+     * any bytes and characters buffered since
      * @throws IOException If an error occurs
      */
     public void reset() throws IOException
     {
-        checkMarkReset();
-        in.reset();
+        synchronized (lock)
+        {
+            checkMarkReset();
+            in.reset();
+            byteCount = 0;
+            charPos = 0;
+            charCount = 0;
+        }
     }
 
     /**
@@ -240,6 +367,11 @@ public class InputStreamReader extends Reader
                 in.close();
 
             in = null;
+            bytes = null;
+            chars = null;
+            byteCount = 0;
+            charPos = 0;
+            charCount = 0;
         }
     }
 
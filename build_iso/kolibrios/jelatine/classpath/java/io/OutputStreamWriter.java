@@ -37,6 +37,9 @@ exception statement from your version. */
 
 package java.io;
 
+import jelatine.io.Charsets;
+import jelatine.io.Codec;
+
 /**
  * This class writes characters to an output stream that is byte oriented
  * It converts the chars that are written to bytes using an encoding layer,
@@ -67,6 +70,23 @@ public class OutputStreamWriter extends Writer
      */
     private OutputStream out;
 
+    /**
+     * The codec used to encode the characters written to the output stream.
+     */
+    private Codec codec;
+
+    /**
+     * High surrogate held back from the end of the previous write so that a
+     * surrogate pair split between two writes is encoded together, 0 if
+     * none.
+     */
+    private char surrogate;
+
+    /**
+     * Scratch buffer used to encode a held back surrogate.
+     */
+    private final char[] pair = new char[2];
+
     /**
      * This method initializes a new instance of <code>OutputStreamWriter</code>
      * to write to the specified stream using a caller supplied character
@@ -83,13 +103,7 @@ public class OutputStreamWriter extends Writer
     public OutputStreamWriter(OutputStream out, String encoding)
         throws UnsupportedEncodingException
     {
-        if (!encoding.equals("ISO8859_1")
-            && !encoding.equals("US_ASCII")
-            && !encoding.equals("UTF-8"))
-        {
-            throw new UnsupportedEncodingException();
-        }
-
+        this.codec = Charsets.forName(encoding);
         this.out = out;
     }
 
@@ -102,6 +116,7 @@ public class OutputStreamWriter extends Writer
     public OutputStreamWriter(OutputStream out)
     {
         this.out = out;
+        this.codec = Charsets.getDefault();
     }
 
     /**
@@ -132,12 +147,44 @@ public class OutputStreamWriter extends Writer
         if (buf == null)
             throw new IOException();
 
-        byte[] b = new byte[count];
+        synchronized (lock)
+        {
+            if (out == null)
+                throw new IOException("Writer has been closed");
+
+            if (offset < 0 || count < 0 || offset > buf.length - count)
+                throw new IndexOutOfBoundsException();
 
-        for (int i = 0; i < count; i++)
-            b[i] = (byte) ((buf[offset + i] <= 0xFF) ? buf[offset + i] : '?');
+            if (count == 0)
+                return;
 
-        out.write(b);
+            if (surrogate != 0)
+            {
+                pair[0] = surrogate;
+                surrogate = 0;
+
+                if (buf[offset] >= '\uDC00' && buf[offset] <= '\uDFFF')
+                {
+                    pair[1] = buf[offset];
+                    out.write(codec.encode(pair, 0, 2));
+                    offset++;
+                    count--;
+                }
+                else
+                    out.write(codec.encode(pair, 0, 1));
+            }
+
+            // Wait for the low surrogate of a trailing high surrogate
+            if (count > 0 && buf[offset + count - 1] >= '\uD800'
+                && buf[offset + count - 1] <= '\uDBFF')
+            {
+                surrogate = buf[offset + count - 1];
+                count--;
+            }
+
+            if (count > 0)
+                out.write(codec.encode(buf, offset, count));
+        }
     }
 
     /**
@@ -162,6 +209,8 @@ public class OutputStreamWriter extends Writer
 
     /**
      * This method flushes any buffered bytes to the underlying output sink.
+     * A held back high surrogate stays buffered until the next write or
+     * until the writer is closed.
      *
      * @throws IOException If an error occurs
      */
@@ -186,6 +235,13 @@ public class OutputStreamWriter extends Writer
             if (out == null)
                 return;
 
+            if (surrogate != 0)
+            {
+                pair[0] = surrogate;
+                surrogate = 0;
+                out.write(codec.encode(pair, 0, 1));
+            }
+
             flush();
             out.close();
             out = null;
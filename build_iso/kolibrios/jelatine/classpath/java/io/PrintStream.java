@@ -38,6 +38,11 @@ exception statement from your version. */
 
 package java.io;
 
+import jelatine.io.Charsets;
+import jelatine.io.Codec;
+import jelatine.text.DoubleFormat;
+import jelatine.text.IntegerFormat;
+
 /* Written using "Java Class Libraries", 2nd edition, ISBN 0-201-31002-3
  * "The Java Language Specification", ISBN 0-201-63451-1
  * Status:  Believed complete and correct to 1.3
@@ -65,9 +70,9 @@ public class PrintStream extends OutputStream
     private OutputStream out;
 
     /**
-     *  Encoding name
+     * Codec used to convert characters into bytes
      */
-    private String encoding;
+    private Codec codec;
 
     /**
      * This boolean indicates whether or not an error has ever occurred
@@ -75,6 +80,27 @@ public class PrintStream extends OutputStream
      */
     private boolean error_occurred = false;
 
+    /**
+     * Number of characters encoded at a time
+     */
+    private static final int CHUNK_SIZE = 128;
+
+    /**
+     * Scratch buffer holding characters copied out of strings
+     */
+    private final char[] chars = new char[CHUNK_SIZE];
+
+    /**
+     * Buffer collecting the encoded bytes of a single print call, large
+     * enough for a chunk of characters and for any long or double value
+     */
+    private final byte[] bytes;
+
+    /**
+     * Number of encoded bytes waiting in <code>bytes</code>
+     */
+    private int pending;
+
     // Line separator string.
     private static final char[] line_separator
         = System.getProperty("line.separator").toCharArray();
@@ -88,7 +114,8 @@ public class PrintStream extends OutputStream
     public PrintStream(OutputStream out)
     {
         this.out = out;
-        this.encoding = "ISO8859_1";
+        this.codec = Charsets.getDefault();
+        this.bytes = new byte[CHUNK_SIZE * codec.maxBytesPerChar()];
     }
 
     /**
@@ -207,7 +234,8 @@ public class PrintStream extends OutputStream
      */
     public synchronized void print(char ch)
     {
-        print(new char[]{ch}, 0, 1, false);
+        chars[0] = ch;
+        print(chars, 0, 1, false);
     }
 
     /**
@@ -218,7 +246,7 @@ public class PrintStream extends OutputStream
      */
     public void print(int inum)
     {
-        print(String.valueOf(inum), false);
+        print(inum, false);
     }
 
     /**
@@ -229,7 +257,7 @@ public class PrintStream extends OutputStream
      */
     public void print(long lnum)
     {
-        print(String.valueOf(lnum), false);
+        print(lnum, false);
     }
 
     /**
@@ -240,7 +268,7 @@ public class PrintStream extends OutputStream
      */
     public void print(float fnum)
     {
-        print(String.valueOf(fnum), false);
+        print(fnum, true, false);
     }
 
     /**
@@ -251,7 +279,7 @@ public class PrintStream extends OutputStream
      */
     public void print(double dnum)
     {
-        print(String.valueOf(dnum), false);
+        print(dnum, false, false);
     }
 
     /**
@@ -322,7 +350,8 @@ public class PrintStream extends OutputStream
      */
     public synchronized void println(char ch)
     {
-        print(new char[]{ch}, 0, 1, true);
+        chars[0] = ch;
+        print(chars, 0, 1, true);
     }
 
     /**
@@ -335,7 +364,7 @@ public class PrintStream extends OutputStream
      */
     public void println(int inum)
     {
-        print(String.valueOf(inum), true);
+        print(inum, true);
     }
 
     /**
@@ -348,7 +377,7 @@ public class PrintStream extends OutputStream
      */
     public void println(long lnum)
     {
-        print(String.valueOf(lnum), true);
+        print(lnum, true);
     }
 
     /**
@@ -361,7 +390,7 @@ public class PrintStream extends OutputStream
      */
     public void println(float fnum)
     {
-        print(String.valueOf(fnum), true);
+        print(fnum, true, true);
     }
 
     /**
@@ -374,7 +403,7 @@ public class PrintStream extends OutputStream
      */
     public void println(double dnum)
     {
-        print(String.valueOf(dnum), true);
+        print(dnum, false, true);
     }
 
     /**
@@ -422,13 +451,56 @@ public class PrintStream extends OutputStream
         try
         {
             writeChars(str, 0, str.length());
-            
+
             if (println)
                 writeChars(line_separator, 0, line_separator.length);
+
+            flushBytes();
         }
         catch (IOException e)
         {
-            setError ();
+            pending = 0;
+            setError();
+        }
+    }
+
+    private synchronized void print(long num, boolean println)
+    {
+        try
+        {
+            // Digits are ASCII, no encoding is needed
+            pending = IntegerFormat.getBytes(num, bytes, 0);
+
+            if (println)
+                writeChars(line_separator, 0, line_separator.length);
+
+            flushBytes();
+        }
+        catch (IOException e)
+        {
+            pending = 0;
+            setError();
+        }
+    }
+
+    private synchronized void print(double num, boolean isFloat,
+        boolean println)
+    {
+        try
+        {
+            // Formatted numbers are ASCII, no encoding is needed
+            pending = isFloat ? DoubleFormat.getBytes((float) num, bytes, 0)
+                              : DoubleFormat.getBytes(num, bytes, 0);
+
+            if (println)
+                writeChars(line_separator, 0, line_separator.length);
+
+            flushBytes();
+        }
+        catch (IOException e)
+        {
+            pending = 0;
+            setError();
         }
     }
 
@@ -438,29 +510,81 @@ public class PrintStream extends OutputStream
         try
         {
             writeChars(chars, pos, len);
-            
+
             if (println)
                 writeChars(line_separator, 0, line_separator.length);
-            
+
+            flushBytes();
         }
         catch (IOException e)
         {
+            pending = 0;
             setError();
         }
     }
 
+    /**
+     * Encodes characters into the byte buffer, passing it to the underlying
+     * stream whenever it fills up. A chunk never ends between the two halves
+     * of a surrogate pair.
+     */
     private void writeChars(char[] buf, int offset, int count)
         throws IOException
     {
-        byte[] bytes = (new String(buf, offset, count)).getBytes(encoding);
-        out.write(bytes, 0, bytes.length);
+        while (count > 0)
+        {
+            int n = (count < CHUNK_SIZE) ? count : CHUNK_SIZE;
+
+            if (n < count && n > 1 && isHighSurrogate(buf[offset + n - 1]))
+                n--;
+
+            if (pending + n * codec.maxBytesPerChar() > bytes.length)
+                flushBytes();
+
+            pending += codec.encode(buf, offset, n, bytes, pending);
+            offset += n;
+            count -= n;
+        }
     }
 
+    /**
+     * Copies the characters of a string chunk by chunk into the scratch
+     * buffer and encodes them
+     */
     private void writeChars(String str, int offset, int count)
         throws IOException
     {
-        byte[] bytes = str.substring(offset, offset+count).getBytes(encoding);
-        out.write(bytes, 0, bytes.length);
+        while (count > 0)
+        {
+            int n = (count < CHUNK_SIZE) ? count : CHUNK_SIZE;
+
+            str.getChars(offset, offset + n, chars, 0);
+
+            if (n < count && n > 1 && isHighSurrogate(chars[n - 1]))
+                n--;
+
+            writeChars(chars, 0, n);
+            offset += n;
+            count -= n;
+        }
     }
-} // class PrintStream
 
+    /**
+     * Passes the encoded bytes to the underlying stream
+     */
+    private void flushBytes() throws IOException
+    {
+        if (pending > 0)
+        {
+            int len = pending;
+
+            pending = 0;
+            out.write(bytes, 0, len);
+        }
+    }
+
+    private static boolean isHighSurrogate(char c)
+    {
+        return c >= '\uD800' && c <= '\uDBFF';
+    }
+} // class PrintStream
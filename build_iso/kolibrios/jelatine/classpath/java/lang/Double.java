@@ -38,6 +38,9 @@ exception statement from your version. */
 
 package java.lang;
 
+import jelatine.text.DoubleFormat;
+import jelatine.text.DoubleParser;
+
 /**
  * Instances of class <code>Double</code> represent primitive
  * <code>double</code> values.
@@ -127,7 +130,10 @@ public final class Double
      * @param d the <code>double</code> to convert
      * @return the <code>String</code> representing the <code>double</code>
      */
-    public native static String toString(double d);
+    public static String toString(double d)
+    {
+        return DoubleFormat.toString(d);
+    }
 
    /**
      * Create a new <code>Double</code> object using the <code>String</code>.
@@ -191,119 +197,8 @@ public final class Double
     public static double parseDouble(String str)
         throws NumberFormatException, NullPointerException
     {
-        String tmp = str.trim(); // Trim all whitespace & control characters
-        long res, sign = 0;
-        int i = 0, length = tmp.length();
-
-        if (length == 0) {
-            throw new NumberFormatException();
-        }
-
-        char c = tmp.charAt(0);
-
-        // Detect the sign
-        if (c == '-') {
-            sign = 0x8000000000000000L;
-            i++;
-        } else if (c == '+') {
-            i++;
-        }
-
-        tmp = tmp.substring(i);
-        i = 0;
-
-        if (tmp.equals("NaN")) {
-            res = 0x7ff8000000000000L;
-        } else if (tmp.equals("Infinity")) {
-            res = 0x7ff0000000000000L;
-        } else {
-            length = tmp.length();
-
-            if (length == 0) {
-                throw new NumberFormatException();
-            }
-
-            // Parse the integral part (if present)
-            double value = 0.0;
-
-            while ((i < length) && Character.isDigit(tmp.charAt(i))) {
-                value = (value * 10.0)
-                        + (double) Character.digit(tmp.charAt(i), 10);
-                i++;
-            }
-
-            // Skip the dot (if present)
-            if ((i < length) && tmp.charAt(i) == '.') {
-                i++;
-            }
-
-            // Parse the fractional part (if present)
-            double div = 10.0;
-
-            while ((i < length) && Character.isDigit(tmp.charAt(i))) {
-                value += ((double) Character.digit(tmp.charAt(i), 10)) / div;
-                div *= 10.0;
-                i++;
-            }
-
-            // Parse the exponent
-            int exponent = 0;
-            boolean exp_pos = true;
-
-            if ((i < length) && (Character.toLowerCase(tmp.charAt(i)) == 'e')) {
-                i++;
-
-                if (i < length) {
-                    c = tmp.charAt(i);
-
-                    if (c == '-') {
-                        i++;
-                        exp_pos = false;
-                    } else if (c == '+') {
-                        i++;
-                    }
-                }
-
-                int j = i;
-
-                while ((i < length) && Character.isDigit(tmp.charAt(i))) {
-                    exponent = (exponent * 10)
-                               + Character.digit(tmp.charAt(i), 10);
-                    i++;
-                }
-
-                if (i == j) {
-                    // After the e/E character there must be an exponent
-                    throw new NumberFormatException();
-                }
-
-                if (!exp_pos) {
-                    exponent = -exponent;
-                }
-            }
-
-            // Parse the float/double specifier (if present)
-            if (i < length) {
-                c = Character.toLowerCase(tmp.charAt(i));
-                i++;
-
-                if (c != 'f' && c != 'd') {
-                    throw new NumberFormatException();
-                }
-            }
-
-            // Ensure that there are no more characters
-            if (i != length) {
-                throw new NumberFormatException();
-            }
-
-            // Encode the actual number
-            value *= Math.pow(10.0, exponent);
-            res = Double.doubleToLongBits(value);
-        }
-
-        return Double.longBitsToDouble(res | sign);
-     }
+        return DoubleParser.parseDouble(str.value, str.offset, str.count);
+    }
 
     /**
      * Return <code>true</code> if the <code>double</code> has the same
@@ -39,6 +39,8 @@ exception statement from your version. */
 package java.lang;
 
 import java.lang.Double;
+import jelatine.text.DoubleFormat;
+import jelatine.text.DoubleParser;
 
 /**
  * Instances of class <code>Float</code> represent primitive
@@ -139,7 +141,10 @@ public final class Float
      * @param f the <code>float</code> to convert
      * @return the <code>String</code> representing the <code>float</code>
      */
-    public native static String toString(float f);
+    public static String toString(float f)
+    {
+        return DoubleFormat.toString(f);
+    }
 
     /**
      * Creates a new <code>Float</code> object using the <code>String</code>.
@@ -204,9 +209,8 @@ public final class Float
      */
     public static float parseFloat(String str)
     {
-        // XXX Rounding parseDouble() causes some errors greater than 1 ulp from
-        // the infinitely precise decimal.
-        return (float) Double.parseDouble(str);
+        // Rounded once to float, going through double could round twice.
+        return DoubleParser.parseFloat(str.value, str.offset, str.count);
     }
 
     /**
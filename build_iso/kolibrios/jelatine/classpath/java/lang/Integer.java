@@ -38,6 +38,8 @@ exception statement from your version. */
 
 package java.lang;
 
+import jelatine.text.IntegerFormat;
+
 /**
  * Instances of class <code>Integer</code> represent primitive
  * <code>int</code> values.
@@ -110,6 +112,17 @@ public final class Integer
         if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX)
             radix = 10;
 
+        // Decimal numbers are formatted two digits at a time straight into
+        // an array of the exact size.
+        if (radix == 10)
+        {
+            char[] buffer = new char[IntegerFormat.stringSize(num)];
+
+            IntegerFormat.getChars(num, buffer, 0);
+            // Package constructor avoids an array copy.
+            return new String(buffer, 0, buffer.length, true);
+        }
+
         // For negative numbers, print out the absolute value w/ a leading '-'.
         // Use an array large enough for a binary number.
         char[] buffer = new char[33];
@@ -37,6 +37,8 @@ exception statement from your version. */
 
 package java.lang;
 
+import jelatine.text.IntegerFormat;
+
 /**
  * Instances of class <code>Long</code> represent primitive
  * <code>long</code> values.
@@ -109,6 +111,17 @@ public final class Long
         if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX)
             radix = 10;
 
+        // Decimal numbers are formatted two digits at a time straight into
+        // an array of the exact size.
+        if (radix == 10)
+        {
+            char[] buffer = new char[IntegerFormat.stringSize(num)];
+
+            IntegerFormat.getChars(num, buffer, 0);
+            // Package constructor avoids an array copy.
+            return new String(buffer, 0, buffer.length, true);
+        }
+
         // For negative numbers, print out the absolute value w/ a leading '-'.
         // Use an array large enough for a binary number.
         char[] buffer = new char[65];
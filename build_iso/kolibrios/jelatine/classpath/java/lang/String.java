@@ -42,6 +42,9 @@ package java.lang;
 import java.lang.System;
 import java.io.UnsupportedEncodingException;
 import jelatine.VMPointer;
+import jelatine.io.Charsets;
+import jelatine.text.SharingPolicy;
+import jelatine.text.StringSearcher;
 
 /**
  * Strings represent an immutable set of characters.  All String literals
@@ -76,6 +79,10 @@ public final class String
     /**
      * Characters which make up the String.
      * Package access is granted for use by StringBuffer.
+     *
+     * This field must stay a char[]: the VM lays out String literals itself
+     * and its natives (intern(), Class.forName(), the I/O natives) read the
+     * characters straight from this array.
      */
     final char[] value;
 
@@ -112,15 +119,27 @@ public final class String
 
     /**
      * Copies the contents of a String to a new String. Since Strings are
-     * immutable, only a shallow copy is performed.
+     * immutable, only a shallow copy is performed unless str shares a larger
+     * character array, in which case its characters are copied so that the
+     * new String does not keep the larger array alive.
      *
      * @param str String to copy
      * @throws NullPointerException if value is null
      */
     public String(String str)
     {
-        value = str.value;
-        offset = str.offset;
+        if (str.count < str.value.length)
+        {
+            value = new char[str.count];
+            System.arraycopy(str.value, str.offset, value, 0, str.count);
+            offset = 0;
+        }
+        else
+        {
+            value = str.value;
+            offset = str.offset;
+        }
+
         count = str.count;
         cachedHashCode = str.cachedHashCode;
     }
@@ -161,8 +180,8 @@ public final class String
      * offset and ending at offset + count. Uses the specified encoding type
      * to decode the byte array, so the resulting string may be longer or
      * shorter than the byte array. The behavior is not specified if
-     * the decoder encounters invalid characters; this implementation throws
-     * an Error.
+     * the decoder encounters invalid characters; this implementation replaces
+     * malformed UTF-8 sequences with <code>'&#92;uFFFD'</code>.
      *
      * @param data byte array to copy
      * @param offset the offset to start at
@@ -189,22 +208,9 @@ public final class String
             throw new StringIndexOutOfBoundsException("offset + count: "
                 + (offset + count));
 
-        // Only ISO 8859-1 support is requested by the CLDC specification but
-        // since ASCII is a subset of it we can support it as well
-        if (!encoding.equals("ISO8859_1")
-            && !encoding.equals("US_ASCII")
-            && !encoding.equals("UTF-8"))
-        {
-            throw new UnsupportedEncodingException();
-        }
-
-        value = new char[count];
-
-        for (int i = 0; i < count; i++)
-            value[i] = (char) (data[i + offset] & 0xFF);
-
+        value = Charsets.forName(encoding).decode(data, offset, count);
         this.offset = 0;
-        this.count = count;
+        this.count = value.length;
     }
 
     /**
@@ -258,14 +264,10 @@ public final class String
             throw new StringIndexOutOfBoundsException("offset + count: "
                 + (offset + count));
 
-        value = new char[count];
-
-        for (int i = 0; i < count; i++)
-            value[i] = (char) (data[i + offset] & 0xFF);
-
+        value = Charsets.getDefault().decode(data, offset, count);
         this.offset = 0;
-        this.count = count;
-  }
+        this.count = value.length;
+    }
 
     /**
      * Creates a new String using the byte array. Uses the encoding of the
@@ -300,8 +302,8 @@ public final class String
             offset = 0;
             count = buffer.count;
 
-            // Share unless buffer is 3/4 empty.
-            if ((count << 2) < buffer.value.length)
+            // Share only if the policy allows pinning the spare capacity.
+            if (! SharingPolicy.share(count, buffer.value.length))
             {
                 value = new char[count];
                 System.arraycopy(buffer.value, 0, value, 0, count);
@@ -416,19 +418,7 @@ public final class String
      */
     public byte[] getBytes(String encoding) throws UnsupportedEncodingException
     {
-        if (!encoding.equals("ISO8859_1")
-            && !encoding.equals("US_ASCII")
-            && !encoding.equals("UTF-8"))
-        {
-            throw new UnsupportedEncodingException();
-        }
-
-        byte result[] = new byte[count];
-
-        for (int i = 0; i < count; i++)
-            result[i] = (byte) value[i + offset];
-
-        return result;
+        return Charsets.forName(encoding).encode(value, offset, count);
     }
 
     /**
@@ -442,15 +432,7 @@ public final class String
      */
     public byte[] getBytes()
     {
-        byte[] bytes = new byte[count];
-
-        for(int i = 0; i < count; i++)
-        {
-            bytes[i] = (byte)
-                ((value[offset + i] <= 0xFF) ? value[offset + i] : '?');
-        }
-
-        return bytes;
+        return Charsets.getDefault().encode(value, offset, count);
     }
 
     /**
@@ -475,6 +457,12 @@ public final class String
         if (value == str2.value && offset == str2.offset)
             return true;
 
+        if (cachedHashCode != 0 && str2.cachedHashCode != 0
+            && cachedHashCode != str2.cachedHashCode)
+        {
+            return false;
+        }
+
         int i = count;
         int x = offset;
         int y = str2.offset;
@@ -523,13 +511,26 @@ public final class String
             char c2 = anotherString.value[y++];
             // Note that checking c1 != c2 is redundant, but avoids method calls.
 
-            if (c1 != c2
-                && Character.toUpperCase(c1) != Character.toUpperCase(c2)
-                && Character.toLowerCase(c1) != Character.toLowerCase(c2))
+            if (c1 == c2)
+                continue;
+
+            // ASCII letters only differ in bit 5, fold them without calls.
+            if ((c1 | c2) < 0x80)
+            {
+                if ((c1 ^ c2) != 0x20)
+                    return false;
+
+                c1 |= 0x20;
+
+                if (c1 < 'a' || c1 > 'z')
+                    return false;
+            }
+            else if (Character.toUpperCase(c1) != Character.toUpperCase(c2)
+                     && Character.toLowerCase(c1) != Character.toLowerCase(c2))
             {
                 return false;
             }
-      }
+        }
 
       return true;
     }
@@ -786,29 +787,37 @@ public final class String
      */
     public int indexOf(String str, int fromIndex)
     {
-        int i;
-        boolean found;
-
-        if (fromIndex < 0)
-            fromIndex = 0;
-
-        int limit = count - str.count;
-
-        for ( ; fromIndex <= limit; fromIndex++)
-        {
-            found = true;
-
-            for (i = 0; i < str.count; i++)
-            {
-                if (str.value[i] != value[fromIndex + i])
-                    found = false;
-            }
+        return StringSearcher.indexOf(value, offset, count, str.value,
+                                      str.offset, str.count, fromIndex);
+    }
 
-            if (found)
-                return fromIndex;
-        }
+    /**
+     * Finds the last instance of a String in this String.
+     *
+     * @param str String to find
+     * @return location (base 0) of the String, or -1 if not found
+     * @throws NullPointerException if str is null
+     */
+    public int lastIndexOf(String str)
+    {
+        return lastIndexOf(str, count - str.count);
+    }
 
-        return -1;
+    /**
+     * Finds the last instance of a String in this String, starting at
+     * a given index.  If starting index is greater than the maximum valid
+     * index, then the search begins at the end of this String.  If the
+     * starting index is less than zero, -1 is returned.
+     *
+     * @param str String to find
+     * @param fromIndex index to start the search
+     * @return location (base 0) of the String, or -1 if not found
+     * @throws NullPointerException if str is null
+     */
+    public int lastIndexOf(String str, int fromIndex)
+    {
+        return StringSearcher.lastIndexOf(value, offset, count, str.value,
+                                          str.offset, str.count, fromIndex);
     }
 
     /**
@@ -847,7 +856,7 @@ public final class String
         int len = endIndex - beginIndex;
         // Package constructor avoids an array copy.
         return new String(value, beginIndex + offset, len,
-            (len << 2) >= value.length);
+            SharingPolicy.share(len, value.length));
     }
 
     /**
@@ -898,18 +907,19 @@ public final class String
         if (i < 0)
             return this;
 
-        char[] newStr = new char[value.length];
-        System.arraycopy(value, 0, newStr, 0, value.length);
+        char[] newStr = new char[count];
+        System.arraycopy(value, offset, newStr, 0, count);
+        x -= offset;
         newStr[x] = newChar;
 
         while (--i >= 0)
         {
-            if (value[++x] == oldChar)
+            if (newStr[++x] == oldChar)
                 newStr[x] = newChar;
         }
 
         // Package constructor avoids an array copy.
-        return new String(newStr, offset, count, true);
+        return new String(newStr, 0, count, true);
     }
 
     /**
@@ -938,19 +948,20 @@ public final class String
 
         // Now we perform the conversion. Fortunately, there are no multi-character
         // lowercase expansions in Unicode 3.0.0.
-        char[] newStr = new char[value.length];
-        System.arraycopy(value, 0, newStr, 0, value.length);
+        char[] newStr = new char[count];
+        System.arraycopy(value, offset, newStr, 0, count);
+        x -= offset;
 
         do
         {
-            char ch = value[x];
+            char ch = newStr[x];
 
             // Hardcoded special case.
             newStr[x++] = Character.toLowerCase(ch);
         } while (--i >= 0);
 
         // Package constructor avoids an array copy.
-        return new String(newStr, offset, count, true);
+        return new String(newStr, 0, count, true);
     }
 
     /**
@@ -979,19 +990,20 @@ public final class String
 
         // Now we perform the conversion. Fortunately, there are no multi-character
         // lowercase expansions in Unicode 3.0.0.
-        char[] newStr = new char[value.length];
-        System.arraycopy(value, 0, newStr, 0, value.length);
+        char[] newStr = new char[count];
+        System.arraycopy(value, offset, newStr, 0, count);
+        x -= offset;
 
         do
         {
-            char ch = value[x];
+            char ch = newStr[x];
 
             // Hardcoded special case.
             newStr[x++] = Character.toUpperCase(ch);
         } while (--i >= 0);
 
         // Package constructor avoids an array copy.
-        return new String(newStr, offset, count, true);
+        return new String(newStr, 0, count, true);
     }
 
     /**
@@ -39,6 +39,8 @@ exception statement from your version. */
 package java.lang;
 
 import java.lang.System;
+import jelatine.text.DoubleFormat;
+import jelatine.text.IntegerFormat;
 
 /**
  * <code>StringBuffer</code> represents a changeable <code>String</code>.
@@ -409,10 +411,12 @@ public final class StringBuffer
      * @return this <code>StringBuffer</code>
      * @see String#valueOf(int)
      */
-    // This is native in libgcj, for efficiency.
-    public StringBuffer append(int inum)
+    // The digits are formatted in place, no temporary String is created.
+    public synchronized StringBuffer append(int inum)
     {
-        return append(String.valueOf(inum));
+        ensureCapacity_unsynchronized(count + IntegerFormat.stringSize(inum));
+        count = IntegerFormat.getChars(inum, value, count);
+        return this;
     }
 
     /**
@@ -424,9 +428,11 @@ public final class StringBuffer
      * @return this <code>StringBuffer</code>
      * @see String#valueOf(long)
      */
-    public StringBuffer append(long lnum)
+    public synchronized StringBuffer append(long lnum)
     {
-        return append(Long.toString(lnum, 10));
+        ensureCapacity_unsynchronized(count + IntegerFormat.stringSize(lnum));
+        count = IntegerFormat.getChars(lnum, value, count);
+        return this;
     }
 
     /**
@@ -438,9 +444,11 @@ public final class StringBuffer
      * @return this <code>StringBuffer</code>
      * @see String#valueOf(float)
      */
-    public StringBuffer append(float fnum)
+    public synchronized StringBuffer append(float fnum)
     {
-        return append(Float.toString(fnum));
+        ensureCapacity_unsynchronized(count + DoubleFormat.MAX_FLOAT_CHARS);
+        count = DoubleFormat.getChars(fnum, value, count);
+        return this;
     }
 
     /**
@@ -452,9 +460,11 @@ public final class StringBuffer
      * @return this <code>StringBuffer</code>
      * @see String#valueOf(double)
      */
-    public StringBuffer append(double dnum)
+    public synchronized StringBuffer append(double dnum)
     {
-        return append(Double.toString(dnum));
+        ensureCapacity_unsynchronized(count + DoubleFormat.MAX_DOUBLE_CHARS);
+        count = DoubleFormat.getChars(dnum, value, count);
+        return this;
     }
 
     /**
@@ -551,13 +561,16 @@ public final class StringBuffer
      * @throws NullPointerException if <code>data</code> is <code>null</code>
      * @throws StringIndexOutOfBoundsException if offset is out of bounds
      */
-    public StringBuffer insert(int offset, char[] data)
+    public synchronized StringBuffer insert(int offset, char[] data)
     {
-        int i;
-
-        for (i = offset; i < data.length; i++)
-            value[i] = data[i - offset];
+        if (offset < 0 || offset > count)
+            throw new StringIndexOutOfBoundsException();
 
+        int len = data.length;
+        ensureCapacity_unsynchronized(count + len);
+        System.arraycopy(value, offset, value, offset + len, count - offset);
+        System.arraycopy(data, 0, value, offset, len);
+        count += len;
         return this;
     }
 
@@ -38,9 +38,9 @@ exception statement from your version. */
 
 package java.lang;
 
-import java.io.OutputStream;
 import java.io.PrintStream;
 import jelatine.VMOutputStream;
+import jelatine.VMProperties;
 
 /**
  * System represents system-wide resources; things that represent the
@@ -133,6 +133,9 @@ public final class System
      * Get a single system property by name. A security check may be performed,
      * <code>checkPropertyAccess(key)</code>.
      *
+     * Properties other than the built-in ones are looked up in the table
+     * filled with <code>jelatine.VMProperties.setProperty()</code>.
+     *
      * @param key the name of the system property to get
      * @return the property, or null if not found
      * @throws NullPointerException if key is null
@@ -155,7 +158,7 @@ public final class System
             else if (key.equals("microedition.profiles"))
                 return null; // To be added by the profile implementation
             else
-                return null;
+                return VMProperties.getProperty(key);
         }
     }
 
@@ -169,6 +172,8 @@ public final class System
      */
     public static void exit(int status)
     {
+        out.flush();
+        err.flush();
         Runtime.getRuntime().exit(status);
     }
 
@@ -191,19 +196,19 @@ public final class System
      */
     private static PrintStream makeStandardErrorStream()
     {
-        OutputStream stderr = new VMOutputStream("stderr");
-
-        return new PrintStream(stderr);
+        return new PrintStream(VMOutputStream.getStandardError());
     }
 
     /**
-     * Creates the standard output stream
+     * Creates the standard output stream. The stream is unbuffered, a
+     * program can buffer it with
+     * <code>VMOutputStream.getStandardOutput().setBuffering()</code>;
+     * buffered output is flushed by <code>System.exit()</code> but not when
+     * the VM exits on its own.
      * @returns A reference to the standard output stream
      */
     private static PrintStream makeStandardOutputStream()
     {
-        OutputStream stdout = new VMOutputStream("stdout");
-
-        return new PrintStream(stdout);
+        return new PrintStream(VMOutputStream.getStandardOutput());
     }
 } // class System
@@ -25,9 +25,12 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Hashtable;
 
 import jelatine.cldc.io.Protocol;
 import jelatine.cldc.io.URL;
+import jelatine.io.BufferedInputStream;
+import jelatine.io.BufferedOutputStream;
 
 /**
  * This class is a factory for creating Connection objects
@@ -53,6 +56,21 @@ public class Connector
     
     private final static String DEFAULT_PROTOCOL_PATH = "jelatine.cldc.io";
 
+    private final static String BUFFER_SIZE_KEY = "javax.microedition.io.Connector.buffersize";
+
+    private final static int DEFAULT_BUFFER_SIZE = 2048;
+
+    /**
+     * Protocol implementation classes indexed by scheme
+     */
+    private final static Hashtable protocolClasses = new Hashtable();
+
+    /**
+     * Package holding the protocol implementations, read from the
+     * protocol path property on the first open and kept afterwards
+     */
+    private static String protocolPath;
+
     /**
      * Non-public constructor
      */
@@ -122,19 +140,21 @@ public class Connector
         // Parse URL
         URL url = new URL(name);
         
-        // Get the protocol implementation class
-        String protocolPath = System.getProperty(PROTOCOL_PATH_KEY);
-        if (protocolPath == null) {
-            protocolPath = DEFAULT_PROTOCOL_PATH;
-        }
-        
-        String protocolClassName = protocolPath + "." + url.getScheme() + ".ProtocolImpl";
+        // Get the protocol implementation class, looked up once per scheme;
+        // the protocol path property is read only once, on the first open
+        String scheme = url.getScheme();
+        Class protocolClass = (Class) protocolClasses.get(scheme);
         Protocol protocolImpl = null;
+
         try {
-            Class protocolClass = Class.forName(protocolClassName);
+            if (protocolClass == null) {
+                protocolClass = Class.forName(getProtocolPath() + "." + scheme + ".ProtocolImpl");
+                protocolClasses.put(scheme, protocolClass);
+            }
+
             protocolImpl = (Protocol)protocolClass.newInstance();
         } catch (Exception e) {
-            throw new ConnectionNotFoundException("Unknown Protocol: " + url.getScheme());
+            throw new ConnectionNotFoundException("Unknown Protocol: " + scheme);
         }
         
         // Now really open the connection
@@ -165,7 +185,14 @@ public class Connector
 
         try
         {
-            stream = connection.openDataInputStream();
+            InputStream in = connection.openInputStream();
+            int size = bufferSize();
+
+            // Protocols may already return buffered streams
+            if (size > 0 && !(in instanceof BufferedInputStream))
+                in = new BufferedInputStream(in, size);
+
+            stream = new DataInputStream(in);
             return stream;
         }
         finally
@@ -175,7 +202,9 @@ public class Connector
     }
 
     /**
-     * Creates a new connection output stream and open it
+     * Creates a new connection output stream and open it. Unless buffering
+     * is disabled the stream is buffered, written data reaches the connection
+     * only when the stream is flushed or closed.
      * @param name A String holding an URL
      * @return A newly created DataOutputStream object
      * @throws IllegalArgumentException If the parameter is invalid
@@ -196,7 +225,13 @@ public class Connector
 
         try
         {
-            stream = connection.openDataOutputStream();
+            OutputStream out = connection.openOutputStream();
+            int size = bufferSize();
+
+            if (size > 0 && !(out instanceof BufferedOutputStream))
+                out = new BufferedOutputStream(out, size);
+
+            stream = new DataOutputStream(out);
             return stream;
         }
         finally
@@ -240,6 +275,42 @@ public class Connector
     {
 	    return openDataOutputStream(name);
     }
-    
+
+    /**
+     * Returns the package holding the protocol implementations
+     * @return The protocol path
+     */
+    private static synchronized String getProtocolPath()
+    {
+        if (protocolPath == null) {
+            protocolPath = System.getProperty(PROTOCOL_PATH_KEY);
+
+            if (protocolPath == null) {
+                protocolPath = DEFAULT_PROTOCOL_PATH;
+            }
+        }
+
+        return protocolPath;
+    }
+
+    /**
+     * Returns the size of the buffers wrapped around the streams returned by
+     * the open*Stream() methods, 0 if they must not be buffered
+     * @return The buffer size in bytes
+     */
+    private static int bufferSize()
+    {
+        String size = System.getProperty(BUFFER_SIZE_KEY);
+
+        if (size != null) {
+            try {
+                return Integer.parseInt(size);
+            } catch (NumberFormatException e) {
+                // Fall through to the default size
+            }
+        }
+
+        return DEFAULT_BUFFER_SIZE;
+    }
 }
 
@@ -0,0 +1,38 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+package jelatine;
+
+/**
+ * Internal VM class holding the natives which pass a whole byte array to the
+ * standard streams. They are kept apart from {@link VMOutputStream} so that
+ * this class is only loaded when bulk writes are enabled; VMs which do not
+ * provide the natives keep working with the per-byte ones.
+ */
+final class VMBulkOutput
+{
+    /**
+     * This class is uninstantiable
+     */
+    private VMBulkOutput()
+    {
+    }
+
+    static native void write_to_stderr_buf(byte[] b, int off, int len);
+    static native void write_to_stdout_buf(byte[] b, int off, int len);
+}
@@ -25,50 +25,298 @@ import java.lang.String;
 
 /**
  * Internal VM class used for handling System's standard error and output
- * streams
+ * streams. The stream can collect written bytes in a buffer and pass them to
+ * the VM in bulk, either when a line is complete or when the buffer is full.
+ * The streams behind System.out and System.err are returned by
+ * {@link #getStandardOutput()} and {@link #getStandardError()}, and their
+ * buffering can be changed at any time with {@link #setBuffering(int, int)}.
+ * Bytes are passed to the VM one at a time unless bulk writes have been
+ * enabled with {@link #setBulkWrites(boolean)} on a VM which provides the
+ * natives of {@link VMBulkOutput}.
  */
 public class VMOutputStream extends OutputStream
 {
+    /** Every write is passed to the VM immediately */
+    public static final int UNBUFFERED = 0;
+
+    /** Bytes are passed to the VM after each newline or when the buffer is
+     * full */
+    public static final int LINE_BUFFERED = 1;
+
+    /** Bytes are passed to the VM only when the buffer is full or on
+     * flush() */
+    public static final int FULLY_BUFFERED = 2;
+
+    /** Default buffer size for the buffered modes */
+    public static final int DEFAULT_BUFFER_SIZE = 512;
+
     private static final int STDERR = 0;
     private static final int STDOUT = 1;
 
+    /** Whether bulk writes are used */
+    private static boolean bulk;
+
+    /** Stream behind System.out, created on first use */
+    private static VMOutputStream stdout;
+
+    /** Stream behind System.err, created on first use */
+    private static VMOutputStream stderr;
+
     private int type;
+    private int mode;
+    private byte[] buf;
+    private int count;
 
     /**
-     * Creates a new stream of the specified type
+     * Creates a new unbuffered stream of the specified type
      * @param type Stream type
      */
     public VMOutputStream(String type)
+    {
+        this(type, UNBUFFERED, 0);
+    }
+
+    /**
+     * Creates a new stream of the specified type and buffering mode
+     * @param type Stream type
+     * @param mode One of UNBUFFERED, LINE_BUFFERED or FULLY_BUFFERED
+     * @param size The buffer size, if not positive the default size is used,
+     * ignored when the stream is unbuffered
+     */
+    public VMOutputStream(String type, int mode, int size)
     {
         if (type.equals("stderr"))
             this.type = STDERR;
         else if (type.equals("stdout"))
             this.type = STDOUT;
+
+        setBuffering(mode, size);
+    }
+
+    /**
+     * Returns the unbuffered stream behind System.out
+     * @return The standard output stream
+     */
+    public static synchronized VMOutputStream getStandardOutput()
+    {
+        if (stdout == null)
+            stdout = new VMOutputStream("stdout");
+
+        return stdout;
+    }
+
+    /**
+     * Returns the unbuffered stream behind System.err
+     * @return The standard error stream
+     */
+    public static synchronized VMOutputStream getStandardError()
+    {
+        if (stderr == null)
+            stderr = new VMOutputStream("stderr");
+
+        return stderr;
+    }
+
+    /**
+     * Enables or disables passing whole buffers to the VM with a single
+     * native call. The VM must provide the natives of {@link VMBulkOutput};
+     * if it does not, the first write falls back to per-byte writes.
+     * @param enabled true to use the bulk natives
+     */
+    public static void setBulkWrites(boolean enabled)
+    {
+        bulk = enabled;
+    }
+
+    /**
+     * Changes the buffering mode of the stream, passing the bytes buffered
+     * so far to the VM first
+     * @param mode One of UNBUFFERED, LINE_BUFFERED or FULLY_BUFFERED
+     * @param size The buffer size, if not positive the default size is used,
+     * ignored when the stream is unbuffered
+     */
+    public synchronized void setBuffering(int mode, int size)
+    {
+        flushBuffer();
+
+        if (mode == LINE_BUFFERED || mode == FULLY_BUFFERED)
+        {
+            this.mode = mode;
+            buf = new byte[(size > 0) ? size : DEFAULT_BUFFER_SIZE];
+        }
+        else
+        {
+            this.mode = UNBUFFERED;
+            buf = null;
+        }
     }
 
     /**
      * This method writes a single byte to the output stream.  The byte written
      * is the low eight bits of the <code>int</code> passed and a argument.
-     * <p>
-     * Subclasses must provide an implementation of this abstract method
      *
      * @param b The byte to be written to the output stream, passed as
      *          the low eight bits of an <code>int</code>
+     */
+    public synchronized void write(int b)
+    {
+        if (buf == null)
+        {
+            switch (type)
+            {
+                case STDERR:
+                    write_to_stderr((byte) b);
+                    break;
+                case STDOUT:
+                    write_to_stdout((byte) b);
+                    break;
+                default:
+                    ;
+            }
+
+            return;
+        }
+
+        if (count == buf.length)
+            flushBuffer();
+
+        buf[count++] = (byte) b;
+
+        if (mode == LINE_BUFFERED && b == '\n')
+            flushBuffer();
+    }
+
+    /**
+     * Writes <code>len</code> bytes from the specified array with a single
+     * call into the VM, or buffers them depending on the buffering mode
      *
-     * @throws IOException If an error occurs
+     * @param b The array of bytes to write
+     * @param off The index of the first byte to write
+     * @param len The number of bytes to write
+     */
+    public synchronized void write(byte[] b, int off, int len)
+    {
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new IndexOutOfBoundsException();
+
+        if (buf == null)
+        {
+            writeBytes(b, off, len);
+            return;
+        }
+
+        if (mode == LINE_BUFFERED)
+        {
+            int end = off + len;
+            int nl = end - 1;
+
+            while (nl >= off && b[nl] != '\n')
+                nl--;
+
+            if (nl >= off)
+            {
+                // Pass everything up to the last newline through
+                int head = nl + 1 - off;
+
+                if (head <= buf.length - count)
+                {
+                    System.arraycopy(b, off, buf, count, head);
+                    count += head;
+                    flushBuffer();
+                }
+                else
+                {
+                    flushBuffer();
+                    writeBytes(b, off, head);
+                }
+
+                off = nl + 1;
+                len = end - off;
+            }
+        }
+
+        if (len >= buf.length)
+        {
+            flushBuffer();
+            writeBytes(b, off, len);
+            return;
+        }
+
+        if (len > buf.length - count)
+            flushBuffer();
+
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * Passes the buffered bytes to the VM
+     */
+    public synchronized void flush()
+    {
+        flushBuffer();
+    }
+
+    /**
+     * Passes the buffered bytes to the VM, the caller must hold the lock
+     */
+    private void flushBuffer()
+    {
+        if (count > 0)
+        {
+            writeBytes(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Passes bytes to the VM with a single native call when bulk writes are
+     * enabled, one byte at a time otherwise
      */
-    public void write(int b)
+    private void writeBytes(byte[] b, int off, int len)
     {
-        switch (type)
+        if (len == 0)
+            return;
+
+        if (bulk)
+        {
+            try
+            {
+                switch (type)
+                {
+                    case STDERR:
+                        VMBulkOutput.write_to_stderr_buf(b, off, len);
+                        break;
+                    case STDOUT:
+                        VMBulkOutput.write_to_stdout_buf(b, off, len);
+                        break;
+                    default:
+                        ;
+                }
+
+                return;
+            }
+            catch (NoClassDefFoundError e)
+            {
+                // The VM could not link VMBulkOutput, fall back to per-byte
+                // writes
+                bulk = false;
+            }
+        }
+
+        for (int end = off + len; off < end; off++)
         {
-            case STDERR:
-                write_to_stderr((byte) b);
-                break;
-            case STDOUT:
-                write_to_stdout((byte) b);
-                break;
-            default:
-                ;
+            switch (type)
+            {
+                case STDERR:
+                    write_to_stderr(b[off]);
+                    break;
+                case STDOUT:
+                    write_to_stdout(b[off]);
+                    break;
+                default:
+                    ;
+            }
         }
     }
 
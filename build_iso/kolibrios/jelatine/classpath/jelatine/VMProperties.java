@@ -0,0 +1,65 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+package jelatine;
+
+import java.util.Hashtable;
+
+/**
+ * Table of system properties set by the running program. System.getProperty()
+ * consults it for the keys it does not define itself, which makes the
+ * properties read by the class library, such as
+ * <code>javax.microedition.io.Connector.buffersize</code>, settable. The
+ * built-in properties cannot be overridden.
+ */
+public final class VMProperties
+{
+    /** The properties, keys and values are strings */
+    private static final Hashtable properties = new Hashtable();
+
+    /**
+     * This class is uninstantiable
+     */
+    private VMProperties()
+    {
+    }
+
+    /**
+     * Sets a property
+     * @param key The property name
+     * @param value The new value, null to remove the property
+     * @throws NullPointerException if key is null
+     */
+    public static void setProperty(String key, String value)
+    {
+        if (value == null)
+            properties.remove(key);
+        else
+            properties.put(key, value);
+    }
+
+    /**
+     * Returns the value of a property
+     * @param key The property name
+     * @return The value, or null if the property is not set
+     */
+    public static String getProperty(String key)
+    {
+        return (String) properties.get(key);
+    }
+}
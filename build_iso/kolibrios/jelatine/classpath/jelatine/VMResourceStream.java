@@ -25,8 +25,8 @@ import java.lang.String;
 import jelatine.VMPointer;
 
 /**
- * Internal VM class used for handling System's standard error and output
- * streams
+ * Internal VM class used for reading resources. Bulk reads, available() and
+ * skip() are served by the VM directly from the resource data.
  */
 public class VMResourceStream extends InputStream
 {
@@ -36,9 +36,6 @@ public class VMResourceStream extends InputStream
     /** Name of the resource */
     private String resource;
 
-    /** Available bytes */
-    private int available;
-
     /**
      * Creates a new stream for the specified resource
      * @param resource Resource name
@@ -46,7 +43,6 @@ public class VMResourceStream extends InputStream
     public VMResourceStream(String resource)
     {
         this.resource = resource;
-        available = 0;
     }
 
     /**
@@ -66,7 +62,7 @@ public class VMResourceStream extends InputStream
      */
     public int available()
     {
-        return available;
+        return remaining();
     }
 
     /**
@@ -80,8 +76,92 @@ public class VMResourceStream extends InputStream
      */
     public native int read();
 
+    /**
+     * Reads up to <code>len</code> bytes with a single call into the VM
+     *
+     * @param b The destination array
+     * @param off The index of the first byte to store
+     * @param len The maximum number of bytes to read
+     * @return The number of bytes read, or -1 if end of stream
+     */
+    public int read(byte[] b, int off, int len)
+    {
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new IndexOutOfBoundsException();
+
+        if (len == 0)
+            return 0;
+
+        return read_bytes(b, off, len);
+    }
+
+    /**
+     * Skips over bytes by moving the read position, no data is read
+     *
+     * @param n The number of bytes to skip
+     * @return The number of bytes skipped
+     */
+    public long skip(long n)
+    {
+        if (n <= 0)
+            return 0;
+
+        return skip_bytes((n > Integer.MAX_VALUE) ? Integer.MAX_VALUE
+                                                  : (int) n);
+    }
+
+    /**
+     * Returns the size of the resource
+     *
+     * @return The total number of bytes in the resource
+     */
+    public native int size();
+
+    /**
+     * Moves the read position to the specified offset from the start of the
+     * resource
+     *
+     * @param pos The new position
+     * @return false if the position is past the end of the resource, in which
+     * case the position is unchanged
+     */
+    public native boolean seek(int pos);
+
+    /**
+     * Closes the stream, releasing the VM handle right away instead of when
+     * the stream is finalized
+     */
+    public void close()
+    {
+        release();
+    }
+
     /**
      * Finalize method
      */
     protected native void finalize();
+
+    /**
+     * Releases the VM handle and clears it; afterwards reads return -1 and
+     * finalize() has nothing left to release. Releasing twice is harmless.
+     */
+    private native void release();
+
+    /**
+     * Copies up to len bytes from the current position, returns -1 if the
+     * end of the resource has been reached
+     */
+    private native int read_bytes(byte[] b, int off, int len);
+
+    /**
+     * Returns the number of bytes between the current position and the end
+     * of the resource
+     */
+    private native int remaining();
+
+    /**
+     * Moves the current position forward by up to n bytes, stopping at the
+     * end of the resource, and returns the number of bytes skipped
+     */
+    private native int skip_bytes(int n);
 }
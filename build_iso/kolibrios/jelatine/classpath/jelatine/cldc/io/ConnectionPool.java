@@ -0,0 +1,341 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.cldc.io;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import javax.microedition.io.Connector;
+
+/** Opt-in pool of idle socket connections keyed by host and port. Instead of
+ * closing a connection the application gives it back with release(), a
+ * later get() for the same host and port then reuses it, saving the connect
+ * latency. Idle connections are closed once they exceed the idle timeout,
+ * when the pool is full, or when the health check finds them closed by the
+ * peer or holding unexpected data.
+ *
+ * The pool also bounds the number of connections it has handed out and
+ * keeps idle: get() throws once the limit is reached and no idle
+ * connection can be closed to make room. Every connection obtained with
+ * get() must therefore be given back, with release() or with discard() if
+ * it is broken.
+ *
+ * Releasing a connection flushes its output stream. A connection must only
+ * be released after the reply has been fully read, and its streams must not
+ * be used afterwards. */
+
+public class ConnectionPool {
+
+    /** Default maximum number of connections, idle and handed out */
+    public static final int DEFAULT_MAX_CONNECTIONS = 8;
+
+    private final int maxIdle; /**< Maximum number of idle connections */
+    private final int maxConnections; /**< Maximum number of connections */
+    private final long idleTimeout; /**< Idle time before closing, in ms */
+    private final Hashtable idle = new Hashtable(); /**< Key -> Vector of Entry */
+    private int idleCount; /**< Number of idle connections */
+    private int activeCount; /**< Number of connections handed out */
+
+    /** Idle connection with the time it was released */
+    private static final class Entry {
+        final jelatine.cldc.io.socket.ProtocolImpl connection;
+        final long since;
+
+        Entry(jelatine.cldc.io.socket.ProtocolImpl connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+
+    /** Creates a new pool allowing DEFAULT_MAX_CONNECTIONS connections, or
+     * maxIdle if it is larger
+     * @param maxIdle The maximum number of idle connections kept
+     * @param idleTimeout The time in milliseconds after which an idle
+     * connection is closed
+     * @throws IllegalArgumentException if a parameter is negative */
+
+    public ConnectionPool(int maxIdle, long idleTimeout) {
+        this(maxIdle, idleTimeout, Math.max(maxIdle, DEFAULT_MAX_CONNECTIONS));
+    }
+
+    /** Creates a new pool
+     * @param maxIdle The maximum number of idle connections kept
+     * @param idleTimeout The time in milliseconds after which an idle
+     * connection is closed
+     * @param maxConnections The maximum number of connections, idle and
+     * handed out together
+     * @throws IllegalArgumentException if a parameter is negative or
+     * maxConnections is smaller than maxIdle */
+
+    public ConnectionPool(int maxIdle, long idleTimeout, int maxConnections) {
+        if (maxIdle < 0 || idleTimeout < 0 || maxConnections < maxIdle) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxIdle = maxIdle;
+        this.idleTimeout = idleTimeout;
+        this.maxConnections = maxConnections;
+    }
+
+    /** Returns a healthy idle connection to the host and port of the URL, or
+     * opens a new one, closing an idle connection to another host if the
+     * pool is at its limit
+     * @param name A socket URL, socket://host:port[;params]
+     * @returns The connection
+     * @throws IllegalArgumentException if the URL is not a socket URL
+     * @throws IOException if a new connection cannot be opened, or if the
+     * limit is reached and all the connections are handed out */
+
+    public jelatine.cldc.io.socket.ProtocolImpl get(String name)
+        throws IOException {
+        String key = keyOf(name);
+
+        synchronized (this) {
+            expire(System.currentTimeMillis());
+
+            Vector entries = (Vector) idle.get(key);
+
+            while (entries != null && !entries.isEmpty()) {
+                // Most recently released first, it is the least likely to
+                // have been dropped by the peer
+                int last = entries.size() - 1;
+                Entry entry = (Entry) entries.elementAt(last);
+
+                entries.removeElementAt(last);
+                idleCount--;
+
+                if (entries.isEmpty()) {
+                    idle.remove(key);
+                }
+
+                if (entry.connection.isHealthy()) {
+                    activeCount++;
+                    return entry.connection;
+                }
+
+                closeQuietly(entry.connection);
+            }
+
+            while (activeCount + idleCount >= maxConnections) {
+                if (!evictOldest()) {
+                    throw new IOException("Connection pool exhausted");
+                }
+            }
+
+            // Reserve the slot while connecting
+            activeCount++;
+        }
+
+        boolean opened = false;
+
+        try {
+            jelatine.cldc.io.socket.ProtocolImpl connection =
+                (jelatine.cldc.io.socket.ProtocolImpl) Connector.open(name);
+
+            opened = true;
+            return connection;
+        } finally {
+            if (!opened) {
+                synchronized (this) {
+                    activeCount--;
+                }
+            }
+        }
+    }
+
+    /** Gives a connection back to the pool, or closes it if the pool is
+     * full or the connection is not healthy
+     * @param name The URL the connection was obtained with
+     * @param connection The connection */
+
+    public void release(String name,
+                        jelatine.cldc.io.socket.ProtocolImpl connection) {
+        String key = keyOf(name);
+
+        try {
+            connection.flush();
+        } catch (IOException e) {
+            discard(connection);
+            return;
+        }
+
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+
+            checkedIn();
+
+            expire(now);
+
+            if (idleCount < maxIdle && connection.isHealthy()) {
+                Vector entries = (Vector) idle.get(key);
+
+                if (entries == null) {
+                    entries = new Vector();
+                    idle.put(key, entries);
+                }
+
+                entries.addElement(new Entry(connection, now));
+                idleCount++;
+                return;
+            }
+        }
+
+        closeQuietly(connection);
+    }
+
+    /** Closes a connection obtained with get() instead of giving it back,
+     * freeing its place in the pool
+     * @param connection The connection */
+
+    public void discard(jelatine.cldc.io.socket.ProtocolImpl connection) {
+        synchronized (this) {
+            checkedIn();
+        }
+
+        closeQuietly(connection);
+    }
+
+    /** Returns the number of connections handed out and not given back
+     * @returns The number of connections in use */
+
+    public synchronized int activeCount() {
+        return activeCount;
+    }
+
+    /** Returns the number of idle connections held
+     * @returns The number of idle connections */
+
+    public synchronized int size() {
+        return idleCount;
+    }
+
+    /** Closes all the idle connections */
+
+    public synchronized void clear() {
+        Enumeration e = idle.elements();
+
+        while (e.hasMoreElements()) {
+            Vector entries = (Vector) e.nextElement();
+
+            for (int i = 0; i < entries.size(); i++) {
+                closeQuietly(((Entry) entries.elementAt(i)).connection);
+            }
+        }
+
+        idle.clear();
+        idleCount = 0;
+    }
+
+    /** Closes the connections idle for longer than the timeout
+     * @param now The current time */
+
+    private void expire(long now) {
+        Vector emptied = null;
+        Enumeration keys = idle.keys();
+
+        while (keys.hasMoreElements()) {
+            Object key = keys.nextElement();
+            Vector entries = (Vector) idle.get(key);
+
+            // Entries are in release order, the oldest come first
+            while (!entries.isEmpty()) {
+                Entry entry = (Entry) entries.elementAt(0);
+
+                if (now - entry.since <= idleTimeout) {
+                    break;
+                }
+
+                entries.removeElementAt(0);
+                idleCount--;
+                closeQuietly(entry.connection);
+            }
+
+            if (entries.isEmpty()) {
+                if (emptied == null) {
+                    emptied = new Vector();
+                }
+
+                emptied.addElement(key);
+            }
+        }
+
+        // Not removed while enumerating the keys
+        for (int i = 0; emptied != null && i < emptied.size(); i++) {
+            idle.remove(emptied.elementAt(i));
+        }
+    }
+
+    /** Counts a connection given back */
+
+    private void checkedIn() {
+        if (activeCount > 0) {
+            activeCount--;
+        }
+    }
+
+    /** Closes the idle connection released first among those of one host
+     * @returns false if there is no idle connection */
+
+    private boolean evictOldest() {
+        Enumeration keys = idle.keys();
+
+        if (!keys.hasMoreElements()) {
+            return false;
+        }
+
+        Object key = keys.nextElement();
+        Vector entries = (Vector) idle.get(key);
+        Entry entry = (Entry) entries.elementAt(0);
+
+        entries.removeElementAt(0);
+        idleCount--;
+
+        if (entries.isEmpty()) {
+            idle.remove(key);
+        }
+
+        closeQuietly(entry.connection);
+        return true;
+    }
+
+    /** Extracts the pool key, the host and port, from a socket URL */
+
+    private static String keyOf(String name) {
+        URL url = new URL(name);
+
+        if (!"socket".equals(url.getScheme())) {
+            throw new IllegalArgumentException("Not a socket URL: " + name);
+        }
+
+        return url.getTarget();
+    }
+
+    private static void closeQuietly(
+        jelatine.cldc.io.socket.ProtocolImpl connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // The connection is discarded anyway
+        }
+    }
+
+}
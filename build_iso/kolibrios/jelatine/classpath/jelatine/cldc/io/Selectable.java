@@ -0,0 +1,45 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.cldc.io;
+
+import java.io.IOException;
+
+/** Connection which can be registered with a Selector. Registering a
+ * connection switches it to non-blocking mode. Buffered streams cannot
+ * tell a non-blocking read with no data from the end of the stream, nor
+ * report the data they hold to the selector, so connections reject
+ * non-blocking mode while their streams are open. */
+
+public interface Selectable {
+
+    /** Returns the native handle polled by the selector
+     * @returns The native id of the connection */
+
+    public int getNativeId();
+
+    /** Switches the connection between blocking and non-blocking mode. In
+     * non-blocking mode reads and writes return immediately, transferring
+     * only what can be transferred without waiting.
+     * @param blocking true to block, false not to
+     * @throws IOException if an error occurs */
+
+    public void setBlocking(boolean blocking) throws IOException;
+
+}
@@ -0,0 +1,141 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.cldc.io;
+
+/** Registration of a Selectable connection with a Selector. The key holds
+ * the operations the selector watches for, the ones found ready by the last
+ * select and an optional attachment. */
+
+public final class SelectionKey {
+
+    /** The connection has data to read, or has been closed by the peer */
+    public static final int OP_READ = 1;
+
+    /** The connection can accept more data to write */
+    public static final int OP_WRITE = 4;
+
+    /** The server connection has a pending connection to accept */
+    public static final int OP_ACCEPT = 16;
+
+    private final Selector selector; /**< Selector holding the key */
+    private final Selectable connection; /**< Registered connection */
+    private int interestOps; /**< Operations watched */
+    private int readyOps; /**< Operations ready after the last select */
+    private Object attachment; /**< Object attached by the user */
+    private boolean valid = true; /**< Cleared when the key is cancelled */
+
+    SelectionKey(Selector selector, Selectable connection, int ops,
+                 Object attachment) {
+        this.selector = selector;
+        this.connection = connection;
+        this.interestOps = ops;
+        this.attachment = attachment;
+    }
+
+    /** Returns the selector this key is registered with
+     * @returns The selector */
+
+    public Selector selector() {
+        return selector;
+    }
+
+    /** Returns the registered connection
+     * @returns The connection */
+
+    public Selectable connection() {
+        return connection;
+    }
+
+    /** Returns the operations the selector watches for
+     * @returns A combination of the OP_* flags */
+
+    public synchronized int interestOps() {
+        return interestOps;
+    }
+
+    /** Changes the operations the selector watches for, the change takes
+     * effect on the next select
+     * @param ops A combination of the OP_* flags */
+
+    public synchronized void interestOps(int ops) {
+        interestOps = ops;
+    }
+
+    /** Returns the operations found ready by the last select
+     * @returns A combination of the OP_* flags */
+
+    public synchronized int readyOps() {
+        return readyOps;
+    }
+
+    synchronized void setReadyOps(int ops) {
+        readyOps = ops;
+    }
+
+    /** @returns true if the connection was found readable */
+
+    public boolean isReadable() {
+        return (readyOps() & OP_READ) != 0;
+    }
+
+    /** @returns true if the connection was found writable */
+
+    public boolean isWritable() {
+        return (readyOps() & OP_WRITE) != 0;
+    }
+
+    /** @returns true if a connection is waiting to be accepted */
+
+    public boolean isAcceptable() {
+        return (readyOps() & OP_ACCEPT) != 0;
+    }
+
+    /** Returns the object attached to this key
+     * @returns The attachment, or null */
+
+    public synchronized Object attachment() {
+        return attachment;
+    }
+
+    /** Attaches an object to this key
+     * @param attachment The object, may be null
+     * @returns The previous attachment */
+
+    public synchronized Object attach(Object attachment) {
+        Object previous = this.attachment;
+
+        this.attachment = attachment;
+        return previous;
+    }
+
+    /** Cancels the registration, the key is removed from its selector on the
+     * next select. The connection stays in non-blocking mode. */
+
+    public synchronized void cancel() {
+        valid = false;
+    }
+
+    /** @returns false once the key has been cancelled */
+
+    public synchronized boolean isValid() {
+        return valid;
+    }
+
+}
@@ -0,0 +1,214 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.cldc.io;
+
+import java.io.IOException;
+import java.util.Vector;
+
+/** Waits for readiness on many connections at once, so that a single thread
+ * can serve all of them. Connections are registered with an interest set of
+ * SelectionKey.OP_* flags, select() then blocks until at least one of them
+ * is ready or the timeout expires. The keys found ready are available from
+ * selectedKeys() until the next select. */
+
+public final class Selector {
+
+    private final Vector keys = new Vector(); /**< Registered keys */
+    private final Vector selected = new Vector(); /**< Keys ready */
+    private final Object selectLock = new Object(); /**< Held by the thread selecting */
+    private SelectionKey[] polled = new SelectionKey[8]; /**< Keys passed to poll() */
+    private int[] ids = new int[8]; /**< Native ids passed to poll() */
+    private int[] events = new int[8]; /**< Interest sets passed to poll() */
+    private int[] revents = new int[8]; /**< Ready sets filled by poll() */
+    private boolean closed; /**< Set once the selector is closed */
+
+    /**
+     * Waits until one of the native handles is ready or the timeout expires.
+     *
+     * @param ids The native ids of the connections
+     * @param events The operations watched for each connection
+     * @param revents Filled with the operations ready for each connection,
+     * a connection closed by the peer or in error is reported as readable
+     * @param count The number of connections
+     * @param timeout The timeout in milliseconds, -1 to wait forever
+     * @return The number of connections ready
+     */
+    private static native int poll(int[] ids, int[] events, int[] revents,
+                                   int count, int timeout);
+
+    /** Registers a connection, switching it to non-blocking mode
+     * @param connection The connection
+     * @param ops The operations to watch for, a combination of the
+     * SelectionKey.OP_* flags
+     * @param attachment An object attached to the key, may be null
+     * @returns The new key
+     * @throws IOException if the selector is closed or the connection
+     * cannot be made non-blocking, for instance because one of its streams
+     * is open */
+
+    public synchronized SelectionKey register(Selectable connection, int ops,
+                                              Object attachment)
+        throws IOException {
+        ensureOpen();
+        connection.setBlocking(false);
+
+        SelectionKey key = new SelectionKey(this, connection, ops, attachment);
+
+        keys.addElement(key);
+        return key;
+    }
+
+    /** Waits until at least one registered connection is ready
+     * @param timeout The maximum time to wait in milliseconds, 0 to wait
+     * forever
+     * @returns The number of keys ready
+     * @throws IOException if the selector is closed
+     * @throws IllegalArgumentException if timeout is negative */
+
+    public int select(long timeout) throws IOException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Negative timeout");
+        }
+
+        if (timeout == 0) {
+            return doSelect(-1);
+        }
+
+        return doSelect((timeout > Integer.MAX_VALUE) ? Integer.MAX_VALUE
+                                                      : (int) timeout);
+    }
+
+    /** Checks the registered connections without waiting
+     * @returns The number of keys ready
+     * @throws IOException if the selector is closed */
+
+    public int selectNow() throws IOException {
+        return doSelect(0);
+    }
+
+    /** Returns the keys found ready by the last select. The vector is reused
+     * by the next select.
+     * @returns A vector of SelectionKey objects */
+
+    public Vector selectedKeys() {
+        return selected;
+    }
+
+    /** Returns the number of registered keys, including cancelled keys not
+     * removed yet
+     * @returns The number of keys */
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    /** Cancels all the keys and closes the selector, the connections are
+     * left open */
+
+    public synchronized void close() {
+        for (int i = 0; i < keys.size(); i++) {
+            ((SelectionKey) keys.elementAt(i)).cancel();
+        }
+
+        keys.removeAllElements();
+        selected.removeAllElements();
+        closed = true;
+    }
+
+    /** Polls the registered keys. The selector's lock is released while
+     * poll() waits, so that other threads can register keys or close the
+     * selector meanwhile; keys registered during a select are watched from
+     * the next one. Concurrent selects run one after the other. */
+
+    private int doSelect(int timeout) throws IOException {
+        synchronized (selectLock) {
+            int count = prepare();
+
+            poll(ids, events, revents, count, timeout);
+
+            synchronized (this) {
+                selected.removeAllElements();
+
+                for (int i = 0; i < count; i++) {
+                    SelectionKey key = polled[i];
+                    int ready = revents[i] & events[i];
+
+                    polled[i] = null;
+
+                    // Keys cancelled while polling are not reported
+                    if (closed || !key.isValid()) {
+                        continue;
+                    }
+
+                    key.setReadyOps(ready);
+
+                    if (ready != 0) {
+                        selected.addElement(key);
+                    }
+                }
+
+                return selected.size();
+            }
+        }
+    }
+
+    /** Drops the cancelled keys and copies the others into the arrays
+     * passed to poll()
+     * @returns The number of keys to poll */
+
+    private synchronized int prepare() throws IOException {
+        ensureOpen();
+
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            if (!((SelectionKey) keys.elementAt(i)).isValid()) {
+                keys.removeElementAt(i);
+            }
+        }
+
+        int count = keys.size();
+
+        if (ids.length < count) {
+            int size = Math.max(count, ids.length * 2);
+
+            polled = new SelectionKey[size];
+            ids = new int[size];
+            events = new int[size];
+            revents = new int[size];
+        }
+
+        for (int i = 0; i < count; i++) {
+            SelectionKey key = (SelectionKey) keys.elementAt(i);
+
+            polled[i] = key;
+            ids[i] = key.connection().getNativeId();
+            events[i] = key.interestOps();
+            revents[i] = 0;
+        }
+
+        return count;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Selector closed");
+        }
+    }
+
+}
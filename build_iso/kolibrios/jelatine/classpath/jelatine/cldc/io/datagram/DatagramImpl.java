@@ -0,0 +1,378 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.cldc.io.datagram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import javax.microedition.io.Datagram;
+
+/** Datagram backed by a caller supplied buffer. The buffer is never copied
+ * or replaced, so a receive loop can reuse one datagram and one buffer for
+ * every packet. The address of a received datagram is kept in numeric form
+ * and turned into a string only when getAddress() is called.
+ *
+ * The usable part of the buffer ends where the data given to the
+ * constructor or to setData() ends, so packets received and bytes written
+ * never touch the caller's bytes past the datagram's size.
+ *
+ * The read and write methods work on the data starting at the offset,
+ * reads stop at the length while writes extend it up to the end of the
+ * usable part. */
+
+class DatagramImpl implements Datagram {
+
+    private byte[] buffer; /**< Data buffer */
+    private int offset; /**< Offset of the data in the buffer */
+    private int limit; /**< End of the usable part of the buffer */
+    private int length; /**< Length of the data */
+    private int pointer; /**< Read/write pointer, relative to the offset */
+
+    private String address; /**< Address in URL form, built lazily */
+    String host; /**< Destination host name, null if ip is used */
+    int ip; /**< Numeric IPv4 address, used when host is null */
+    int port = -1; /**< Port, -1 if no address is set */
+
+    DatagramImpl(byte[] buffer, int length) {
+        setData(buffer, 0, length);
+    }
+
+    public String getAddress() {
+        if (address == null && port >= 0) {
+            String h = host;
+
+            if (h == null) {
+                h = ((ip >>> 24) & 0xff) + "." + ((ip >>> 16) & 0xff) + "."
+                    + ((ip >>> 8) & 0xff) + "." + (ip & 0xff);
+            }
+
+            address = "datagram://" + h + ":" + port;
+        }
+
+        return address;
+    }
+
+    public byte[] getData() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setAddress(String addr) throws IllegalArgumentException {
+        if (addr == null || !addr.startsWith("datagram://")) {
+            throw new IllegalArgumentException("Invalid address");
+        }
+
+        int colon = addr.lastIndexOf(':');
+
+        if (colon <= 10 || colon == addr.length() - 1) {
+            throw new IllegalArgumentException("Invalid address");
+        }
+
+        try {
+            port = Integer.parseInt(addr.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid address");
+        }
+
+        host = addr.substring(11, colon);
+        ip = 0;
+        address = addr;
+    }
+
+    public void setAddress(Datagram datagram) throws IllegalArgumentException {
+        if (datagram instanceof DatagramImpl) {
+            DatagramImpl d = (DatagramImpl) datagram;
+
+            host = d.host;
+            ip = d.ip;
+            port = d.port;
+            address = d.address;
+        } else {
+            setAddress(datagram.getAddress());
+        }
+    }
+
+    /** Returns the number of bytes a packet received in this datagram can
+     * occupy, from the offset to the end of the usable part of the buffer
+     * @returns The capacity in bytes */
+
+    int capacity() {
+        return limit - offset;
+    }
+
+    /** Updates the datagram after a packet has been received in its buffer,
+     * the pointer is moved back to the start of the data
+     * @param len The length of the packet
+     * @param ip The numeric IPv4 address of the sender
+     * @param port The port of the sender */
+
+    void received(int len, int ip, int port) {
+        length = len;
+        pointer = 0;
+        setSender(ip, port);
+    }
+
+    /** Sets the address of a received datagram without building a string,
+     * the cached address string is kept if the sender did not change
+     * @param ip The numeric IPv4 address of the sender
+     * @param port The port of the sender */
+
+    void setSender(int ip, int port) {
+        if (host != null || this.ip != ip || this.port != port) {
+            this.host = null;
+            this.ip = ip;
+            this.port = port;
+            this.address = null;
+        }
+    }
+
+    public void setLength(int len) throws IllegalArgumentException {
+        if (len < 0 || len > limit - offset) {
+            throw new IllegalArgumentException("Invalid length");
+        }
+
+        length = len;
+
+        if (pointer > len) {
+            pointer = len;
+        }
+    }
+
+    public void setData(byte[] buf, int off, int len)
+        throws IllegalArgumentException {
+        if (buf == null || off < 0 || len < 0 || off > buf.length - len) {
+            throw new IllegalArgumentException("Invalid buffer");
+        }
+
+        buffer = buf;
+        offset = off;
+        length = len;
+        limit = off + len;
+        pointer = 0;
+    }
+
+    /** Moves the data to the start of the buffer and empties it. The
+     * capacity is kept, so the usable part becomes the first capacity()
+     * bytes of the buffer. */
+
+    public void reset() {
+        limit -= offset;
+        offset = 0;
+        length = 0;
+        pointer = 0;
+    }
+
+    /* DataInput */
+
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        System.arraycopy(buffer, take(len), b, off, len);
+    }
+
+    public int skipBytes(int n) {
+        if (n <= 0) {
+            return 0;
+        }
+
+        int skipped = Math.min(n, length - pointer);
+
+        pointer += skipped;
+        return skipped;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return buffer[take(1)] != 0;
+    }
+
+    public byte readByte() throws IOException {
+        return buffer[take(1)];
+    }
+
+    public int readUnsignedByte() throws IOException {
+        return buffer[take(1)] & 0xff;
+    }
+
+    public short readShort() throws IOException {
+        int i = take(2);
+
+        return (short) ((buffer[i] << 8) | (buffer[i + 1] & 0xff));
+    }
+
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xffff;
+    }
+
+    public char readChar() throws IOException {
+        return (char) readShort();
+    }
+
+    public int readInt() throws IOException {
+        int i = take(4);
+
+        return (buffer[i] << 24) | ((buffer[i + 1] & 0xff) << 16)
+            | ((buffer[i + 2] & 0xff) << 8) | (buffer[i + 3] & 0xff);
+    }
+
+    public long readLong() throws IOException {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+
+    /* DataOutput */
+
+    public void write(int b) throws IOException {
+        buffer[put(1)] = (byte) b;
+    }
+
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        System.arraycopy(b, off, buffer, put(len), len);
+    }
+
+    public void writeBoolean(boolean v) throws IOException {
+        buffer[put(1)] = (byte) (v ? 1 : 0);
+    }
+
+    public void writeByte(int v) throws IOException {
+        buffer[put(1)] = (byte) v;
+    }
+
+    public void writeShort(int v) throws IOException {
+        int i = put(2);
+
+        buffer[i] = (byte) (v >> 8);
+        buffer[i + 1] = (byte) v;
+    }
+
+    public void writeChar(int v) throws IOException {
+        writeShort(v);
+    }
+
+    public void writeInt(int v) throws IOException {
+        int i = put(4);
+
+        buffer[i] = (byte) (v >> 24);
+        buffer[i + 1] = (byte) (v >> 16);
+        buffer[i + 2] = (byte) (v >> 8);
+        buffer[i + 3] = (byte) v;
+    }
+
+    public void writeLong(long v) throws IOException {
+        writeInt((int) (v >> 32));
+        writeInt((int) v);
+    }
+
+    public void writeFloat(float v) throws IOException {
+        writeInt(Float.floatToIntBits(v));
+    }
+
+    public void writeDouble(double v) throws IOException {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    public void writeChars(String s) throws IOException {
+        int len = s.length();
+
+        for (int i = 0; i < len; i++) {
+            writeShort(s.charAt(i));
+        }
+    }
+
+    public void writeUTF(String s) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(s.length() + 2);
+
+        new DataOutputStream(bytes).writeUTF(s);
+        write(bytes.toByteArray());
+    }
+
+    /** Advances the pointer over bytes to be read
+     * @param len The number of bytes
+     * @returns The index in the buffer of the first byte
+     * @throws EOFException if fewer than len bytes are left */
+
+    private int take(int len) throws EOFException {
+        if (len > length - pointer) {
+            throw new EOFException();
+        }
+
+        int i = offset + pointer;
+
+        pointer += len;
+        return i;
+    }
+
+    /** Advances the pointer over bytes to be written, extending the length
+     * @param len The number of bytes
+     * @returns The index in the buffer of the first byte
+     * @throws EOFException if the usable part of the buffer has no room for
+     * len bytes */
+
+    private int put(int len) throws EOFException {
+        if (len > limit - offset - pointer) {
+            throw new EOFException();
+        }
+
+        int i = offset + pointer;
+
+        pointer += len;
+
+        if (pointer > length) {
+            length = pointer;
+        }
+
+        return i;
+    }
+
+}
@@ -0,0 +1,330 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.cldc.io.datagram;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import javax.microedition.io.Connection;
+import javax.microedition.io.Datagram;
+import javax.microedition.io.DatagramConnection;
+
+import jelatine.cldc.io.Protocol;
+import jelatine.cldc.io.Selectable;
+import jelatine.cldc.io.URL;
+
+/** UDP datagram protocol implementation. The URL datagram://host:port opens
+ * a client connection whose datagrams default to that destination,
+ * datagram://:port opens a server connection bound to the local port.
+ *
+ * Datagrams created with newDatagram(byte[], int) use the caller's buffer
+ * directly and receive() fills it in place, from the datagram's offset up
+ * to the size given when the datagram was created or its data last set,
+ * so a receive loop allocates nothing per packet.
+ * The batched receive() and send() methods transfer several datagrams per
+ * call. The connection can be registered with a jelatine.cldc.io.Selector
+ * for OP_READ and OP_WRITE. */
+
+public class ProtocolImpl implements Protocol, DatagramConnection,
+                                     Selectable {
+
+    /** Largest UDP payload over IPv4 */
+    public static final int MAXIMUM_LENGTH = 65507;
+
+    /** Largest UDP payload fitting an Ethernet frame without fragmentation */
+    public static final int NOMINAL_LENGTH = 1472;
+
+    private String address; /**< Default destination, null for servers */
+    private int datagramId; /**< Native socket id */
+    private final int[] sender = new int[2]; /**< Sender IP and port, locked while receiving */
+
+    /**
+     * Opens the native UDP socket.
+     *
+     * @param localPort The local port to bind, 0 to let the system choose
+     * @return The socket native id
+     */
+    private native int open(int localPort);
+
+    /**
+     * Sends a datagram.
+     *
+     * @param id The socket native id
+     * @param host The destination host name, or null to use \a ip
+     * @param ip The numeric IPv4 destination address
+     * @param port The destination port
+     * @return The number of bytes sent, 0 if a non-blocking socket could
+     * not accept the datagram
+     */
+    private native int send(int id, String host, int ip, int port,
+                            byte[] buffer, int offset, int length);
+
+    /**
+     * Receives a datagram.
+     *
+     * @param id The socket native id
+     * @param from Filled with the IPv4 address and the port of the sender
+     * @param wait true to wait for a datagram, false to return immediately
+     * @return The number of bytes received, truncated to \a length, or -1
+     * if no datagram is available without waiting
+     */
+    private native int receive(int id, byte[] buffer, int offset, int length,
+                               int[] from, boolean wait);
+
+    private native void configureBlocking(int id, boolean blocking);
+
+    private native int close(int id);
+
+    public Connection open(URL url, int mode, boolean timeouts) throws IllegalArgumentException, IOException {
+        String target = url.getTarget();
+        int portStartIndex = target.lastIndexOf(':');
+
+        if (!target.startsWith("//") || portStartIndex < 2) {
+            throw new IllegalArgumentException("Malformed URL");
+        }
+
+        int port;
+
+        try {
+            port = Integer.parseInt(target.substring(portStartIndex + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed URL: bad port");
+        }
+
+        if (portStartIndex == 2) {
+            // Server, bound to the port
+            datagramId = open(port);
+        } else {
+            address = "datagram:" + target;
+            datagramId = open(0);
+        }
+
+        return this;
+    }
+
+    public int getMaximumLength() throws IOException {
+        return MAXIMUM_LENGTH;
+    }
+
+    public int getNominalLength() throws IOException {
+        return NOMINAL_LENGTH;
+    }
+
+    /** Sends a datagram
+     * @param datagram The datagram to send
+     * @throws InterruptedIOException if the connection is non-blocking and
+     * the datagram could not be sent without waiting
+     * @throws IOException if an error occurs */
+
+    public void send(Datagram datagram) throws IOException, InterruptedIOException {
+        if (!trySend(datagram)) {
+            throw new InterruptedIOException("Datagram not sent");
+        }
+    }
+
+    /** Receives a datagram into the datagram's buffer, from its offset up
+     * to the size given to newDatagram() or setData(). The length and the address of the datagram are
+     * set to those of the packet received.
+     * @param datagram The datagram receiving the packet
+     * @throws InterruptedIOException if the connection is non-blocking and
+     * no datagram is available
+     * @throws IOException if an error occurs */
+
+    public void receive(Datagram datagram)
+        throws IOException, InterruptedIOException {
+        if (!receive(datagram, true)) {
+            throw new InterruptedIOException("No datagram available");
+        }
+    }
+
+    /** Sends several datagrams, stopping at the first one a non-blocking
+     * connection cannot accept without waiting
+     * @param datagrams The datagrams
+     * @param off The index of the first datagram to send
+     * @param count The number of datagrams to send
+     * @returns The number of datagrams sent, less than count only if the
+     * connection is non-blocking
+     * @throws IOException if an error occurs */
+
+    public int send(Datagram[] datagrams, int off, int count)
+        throws IOException {
+        checkRange(datagrams.length, off, count);
+
+        int n = 0;
+
+        while (n < count && trySend(datagrams[off + n])) {
+            n++;
+        }
+
+        return n;
+    }
+
+    /** Receives several datagrams. The call waits for the first one, then
+     * takes as many of the already queued ones as fit.
+     * @param datagrams The datagrams receiving the packets
+     * @param off The index of the first datagram to fill
+     * @param count The maximum number of datagrams to fill
+     * @returns The number of datagrams filled, 0 only if the connection is
+     * non-blocking and no datagram is available
+     * @throws IOException if an error occurs */
+
+    public int receive(Datagram[] datagrams, int off, int count)
+        throws IOException {
+        checkRange(datagrams.length, off, count);
+
+        int n = 0;
+
+        while (n < count && receive(datagrams[off + n], n == 0)) {
+            n++;
+        }
+
+        return n;
+    }
+
+    public Datagram newDatagram(int size) throws IOException, IllegalArgumentException {
+        return newDatagram(new byte[checkSize(size)], size, address);
+    }
+
+    public Datagram newDatagram(int size, String addr) throws IOException, IllegalArgumentException {
+        return newDatagram(new byte[checkSize(size)], size, addr);
+    }
+
+    public Datagram newDatagram(byte[] buffer, int size) throws IOException, IllegalArgumentException {
+        return newDatagram(buffer, size, address);
+    }
+
+    public Datagram newDatagram(byte[] buffer, int size, String addr) throws IOException, IllegalArgumentException {
+        if (buffer == null || size < 0 || size > buffer.length) {
+            throw new IllegalArgumentException("Invalid size");
+        }
+
+        DatagramImpl datagram = new DatagramImpl(buffer, size);
+
+        if (addr != null) {
+            datagram.setAddress(addr);
+        }
+
+        return datagram;
+    }
+
+    public int getNativeId() {
+        return datagramId;
+    }
+
+    public void setBlocking(boolean blocking) throws IOException {
+        configureBlocking(datagramId, blocking);
+    }
+
+    public void close() throws IOException {
+        close(datagramId);
+    }
+
+    /** Sends one datagram
+     * @returns false if a non-blocking socket did not accept the datagram */
+
+    private boolean trySend(Datagram datagram) throws IOException {
+        String host;
+        int ip;
+        int port;
+
+        if (datagram instanceof DatagramImpl) {
+            DatagramImpl d = (DatagramImpl) datagram;
+
+            host = d.host;
+            ip = d.ip;
+            port = d.port;
+        } else {
+            DatagramImpl d = new DatagramImpl(new byte[0], 0);
+
+            d.setAddress(datagram.getAddress());
+            host = d.host;
+            ip = d.ip;
+            port = d.port;
+        }
+
+        if (port < 0) {
+            throw new IOException("No destination address");
+        }
+
+        int length = datagram.getLength();
+
+        return send(datagramId, host, ip, port, datagram.getData(),
+                    datagram.getOffset(), length) == length;
+    }
+
+    /** Receives one datagram
+     * @param wait true to wait for a datagram
+     * @returns false if no datagram was available without waiting */
+
+    private boolean receive(Datagram datagram, boolean wait) throws IOException {
+        byte[] buffer = datagram.getData();
+        int offset = datagram.getOffset();
+        int capacity;
+
+        if (datagram instanceof DatagramImpl) {
+            capacity = ((DatagramImpl) datagram).capacity();
+        } else {
+            // Foreign datagrams are filled up to their current length
+            capacity = datagram.getLength();
+        }
+
+        int n;
+        int ip;
+        int port;
+
+        // Concurrent receives must not overwrite each other's sender
+        synchronized (sender) {
+            n = receive(datagramId, buffer, offset, capacity, sender, wait);
+            ip = sender[0];
+            port = sender[1];
+        }
+
+        if (n < 0) {
+            return false;
+        }
+
+        if (datagram instanceof DatagramImpl) {
+            ((DatagramImpl) datagram).received(n, ip, port);
+        } else {
+            DatagramImpl d = new DatagramImpl(buffer, 0);
+
+            d.setSender(ip, port);
+            datagram.setLength(n);
+            datagram.setAddress(d.getAddress());
+        }
+
+        return true;
+    }
+
+    private static int checkSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Invalid size");
+        }
+
+        return size;
+    }
+
+    private static void checkRange(int length, int off, int count) {
+        if (off < 0 || count < 0 || off > length - count) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.cldc.io.serversocket;
+
+import java.io.IOException;
+import java.util.Hashtable;
+
+import javax.microedition.io.Connection;
+import javax.microedition.io.StreamConnection;
+import javax.microedition.io.StreamConnectionNotifier;
+
+import jelatine.cldc.io.Protocol;
+import jelatine.cldc.io.Selectable;
+import jelatine.cldc.io.URL;
+
+/** Server socket protocol implementation, opened with URLs of the form
+ * serversocket://:port. With serversocket://: the system chooses the port,
+ * getLocalPort() tells which one. The \a backlog URL parameter sets the length of the
+ * queue of pending connections, the \a bufsize parameter the size of the
+ * stream buffers of the accepted connections.
+ *
+ * The connection can be registered with a jelatine.cldc.io.Selector for
+ * SelectionKey.OP_ACCEPT, which makes it non-blocking. A non-blocking
+ * acceptAndOpen() returns null when no connection is pending. */
+
+public class ProtocolImpl implements Protocol, StreamConnectionNotifier,
+                                     Selectable {
+
+    /** Default length of the queue of pending connections */
+    public static final int DEFAULT_BACKLOG = 8;
+
+    private int port; /**< Port the server listens on */
+    private int backlog = DEFAULT_BACKLOG; /**< Pending connections queue */
+    private int bufferSize = jelatine.cldc.io.socket.ProtocolImpl.DEFAULT_BUFFER_SIZE; /**< Accepted streams buffer size */
+    private int serverId; /**< Native server socket id */
+
+    /**
+     * Opens the native server socket and starts listening.
+     *
+     * @param port The port to listen on, 0 to let the system choose
+     * @param backlog The length of the queue of pending connections
+     * @return The server socket native id
+     */
+    private native int listen(int port, int backlog);
+
+    /**
+     * Accepts a pending connection.
+     *
+     * @param id The server socket native id
+     * @return The native id of the accepted socket, or -1 if the server
+     * socket is non-blocking and no connection is pending
+     */
+    private native int accept(int id);
+
+    /**
+     * Returns the port the server socket is bound to.
+     *
+     * @param id The server socket native id
+     * @return The local port
+     */
+    private native int localPort(int id);
+
+    private native void configureBlocking(int id, boolean blocking);
+
+    private native int close(int id);
+
+    public Connection open(URL url, int mode, boolean timeouts) throws IllegalArgumentException, IOException {
+        String target = url.getTarget();
+
+        if (!target.startsWith("//:")) {
+            throw new IllegalArgumentException("Malformed URL");
+        }
+
+        String portString = target.substring(3);
+
+        try {
+            port = (portString.length() == 0) ? 0 : Integer.parseInt(portString);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed URL: bad port");
+        }
+
+        String params = url.getParams();
+
+        if (params != null) {
+            Hashtable map = url.getParamsMap(params);
+
+            backlog = parseParam(map, "backlog", backlog);
+            bufferSize = parseParam(map, "bufsize", bufferSize);
+        }
+
+        serverId = listen(port, backlog);
+        return this;
+    }
+
+    /** Waits for a connection and returns it
+     * @returns The accepted connection, or null if the server socket is
+     * non-blocking and no connection is pending
+     * @throws IOException if an error occurs */
+
+    public StreamConnection acceptAndOpen() throws IOException {
+        int socketId = accept(serverId);
+
+        if (socketId < 0) {
+            return null;
+        }
+
+        return jelatine.cldc.io.socket.ProtocolImpl.accepted(socketId, bufferSize);
+    }
+
+    /** Returns the port the server listens on, the one chosen by the
+     * system if the URL did not specify a port
+     * @returns The local port
+     * @throws IOException if an error occurs */
+
+    public int getLocalPort() throws IOException {
+        if (port == 0) {
+            port = localPort(serverId);
+        }
+
+        return port;
+    }
+
+    public int getNativeId() {
+        return serverId;
+    }
+
+    public void setBlocking(boolean blocking) throws IOException {
+        configureBlocking(serverId, blocking);
+    }
+
+    public void close() throws IOException {
+        close(serverId);
+    }
+
+    /** Parses a non-negative integer URL parameter
+     * @param map The URL parameters
+     * @param key The parameter name
+     * @param def The value used if the parameter is missing
+     * @returns The parameter value */
+
+    private static int parseParam(Hashtable map, String key, int def) {
+        String value = (String) map.get(key);
+
+        if (value == null) {
+            return def;
+        }
+
+        int n;
+
+        try {
+            n = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            n = -1;
+        }
+
+        if (n < 0) {
+            throw new IllegalArgumentException("Malformed URL: bad " + key);
+        }
+
+        return n;
+    }
+
+}
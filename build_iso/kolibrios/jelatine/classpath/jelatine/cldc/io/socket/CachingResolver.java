@@ -0,0 +1,254 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.cldc.io.socket;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+import javax.microedition.io.ConnectionNotFoundException;
+
+/** Resolver keeping the results of another resolver for a limited time.
+ * Successful lookups are kept for the positive TTL, failed ones for the
+ * usually shorter negative TTL so that a host which cannot be resolved is
+ * not looked up on every reconnect. Addresses can also be pinned, a pinned
+ * host never expires and is never looked up. Dotted numeric addresses are
+ * parsed directly and never take a cache slot. */
+
+public class CachingResolver extends Resolver {
+
+    /** Default time successful lookups are kept, in milliseconds */
+    public static final long DEFAULT_TTL = 300000;
+
+    /** Default time failed lookups are kept, in milliseconds */
+    public static final long DEFAULT_NEGATIVE_TTL = 10000;
+
+    /** Default maximum number of cached hosts */
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private final Resolver delegate; /**< Resolver doing the lookups */
+    private final long ttl; /**< Positive TTL */
+    private final long negativeTtl; /**< Negative TTL */
+    private final int maxEntries; /**< Maximum number of cached hosts */
+    private final Hashtable entries = new Hashtable(); /**< Host -> Entry */
+
+    /** Cached lookup result */
+    private static final class Entry {
+        final int address; /**< The address if found */
+        final boolean found; /**< false for a failed lookup */
+        final long expires; /**< Expiry time, Long.MAX_VALUE if pinned */
+
+        Entry(int address, boolean found, long expires) {
+            this.address = address;
+            this.found = found;
+            this.expires = expires;
+        }
+    }
+
+    /** Creates a cache with the default TTLs and size
+     * @param delegate The resolver doing the lookups */
+
+    public CachingResolver(Resolver delegate) {
+        this(delegate, DEFAULT_TTL, DEFAULT_NEGATIVE_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    /** Creates a cache
+     * @param delegate The resolver doing the lookups
+     * @param ttl The time successful lookups are kept, in milliseconds
+     * @param negativeTtl The time failed lookups are kept, in milliseconds
+     * @param maxEntries The maximum number of cached hosts
+     * @throws IllegalArgumentException if a parameter is negative */
+
+    public CachingResolver(Resolver delegate, long ttl, long negativeTtl,
+                           int maxEntries) {
+        if (ttl < 0 || negativeTtl < 0 || maxEntries < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.delegate = delegate;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.maxEntries = maxEntries;
+    }
+
+    public int resolve(String host) throws IOException {
+        int numeric = parseAddress(host);
+
+        if (numeric != -1) {
+            return numeric;
+        }
+
+        Entry entry;
+
+        synchronized (this) {
+            entry = (Entry) entries.get(host);
+        }
+
+        if (entry != null && System.currentTimeMillis() < entry.expires) {
+            if (!entry.found) {
+                throw new ConnectionNotFoundException("Unknown host: " + host);
+            }
+
+            return entry.address;
+        }
+
+        return lookup(host);
+    }
+
+    /** Looks up a host bypassing the cache and caches the result, used to
+     * resolve hosts ahead of connecting to them
+     * @param host The host name
+     * @returns The address
+     * @throws ConnectionNotFoundException if the name cannot be resolved
+     * @throws IOException if another error occurs */
+
+    public int preResolve(String host) throws IOException {
+        int numeric = parseAddress(host);
+
+        if (numeric != -1) {
+            return numeric;
+        }
+
+        synchronized (this) {
+            Entry entry = (Entry) entries.get(host);
+
+            if (entry != null && entry.expires == Long.MAX_VALUE) {
+                return entry.address;
+            }
+        }
+
+        return lookup(host);
+    }
+
+    /** Pins a host to an address, it will not expire nor be looked up until
+     * unpinned
+     * @param host The host name
+     * @param address The address */
+
+    public synchronized void pin(String host, int address) {
+        if (!entries.containsKey(host)) {
+            makeRoom(System.currentTimeMillis());
+        }
+
+        entries.put(host, new Entry(address, true, Long.MAX_VALUE));
+    }
+
+    /** Removes a host from the cache, pinned or not
+     * @param host The host name */
+
+    public synchronized void unpin(String host) {
+        entries.remove(host);
+    }
+
+    /** Removes all the hosts which are not pinned */
+
+    public synchronized void clear() {
+        Enumeration hosts = entries.keys();
+        String[] expired = new String[entries.size()];
+        int count = 0;
+
+        while (hosts.hasMoreElements()) {
+            String host = (String) hosts.nextElement();
+
+            if (((Entry) entries.get(host)).expires != Long.MAX_VALUE) {
+                expired[count++] = host;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            entries.remove(expired[i]);
+        }
+    }
+
+    /** Asks the delegate and caches the outcome */
+
+    private int lookup(String host) throws IOException {
+        try {
+            int address = delegate.resolve(host);
+
+            store(host, new Entry(address, true, expiry(ttl)));
+            return address;
+        } catch (ConnectionNotFoundException e) {
+            store(host, new Entry(0, false, expiry(negativeTtl)));
+            throw e;
+        }
+    }
+
+    /** Computes the expiry time of an entry kept for the given time,
+     * clamped so that a huge TTL neither overflows nor reaches the value
+     * marking pinned entries */
+
+    private static long expiry(long time) {
+        long now = System.currentTimeMillis();
+
+        if (time >= Long.MAX_VALUE - 1 - now) {
+            return Long.MAX_VALUE - 1;
+        }
+
+        return now + time;
+    }
+
+    private synchronized void store(String host, Entry entry) {
+        Entry old = (Entry) entries.get(host);
+
+        if (old != null && old.expires == Long.MAX_VALUE) {
+            return; // Pinned meanwhile
+        }
+
+        if (old == null) {
+            makeRoom(System.currentTimeMillis());
+        }
+
+        if (entries.size() < maxEntries || old != null) {
+            entries.put(host, entry);
+        }
+    }
+
+    /** Evicts expired hosts, then any unpinned one, if the cache is full */
+
+    private void makeRoom(long now) {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+
+        String victim = null;
+        Enumeration hosts = entries.keys();
+
+        while (hosts.hasMoreElements()) {
+            String host = (String) hosts.nextElement();
+            Entry entry = (Entry) entries.get(host);
+
+            if (entry.expires == Long.MAX_VALUE) {
+                continue;
+            }
+
+            victim = host;
+
+            if (entry.expires <= now) {
+                break;
+            }
+        }
+
+        if (victim != null) {
+            entries.remove(victim);
+        }
+    }
+
+}
@@ -25,29 +25,51 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Hashtable;
 
 import javax.microedition.io.Connection;
 import javax.microedition.io.StreamConnection;
 
 import jelatine.cldc.io.Protocol;
+import jelatine.cldc.io.Selectable;
 import jelatine.cldc.io.URL;
-
-/** Basic protocol implementation */
-
-public class ProtocolImpl implements Protocol, StreamConnection {
+import jelatine.io.BufferedInputStream;
+import jelatine.io.BufferedOutputStream;
+
+/** Basic protocol implementation. Host names are resolved with the default
+ * Resolver, which caches lookups. The streams are buffered, the size of the
+ * buffers can be set with the \a bufsize URL parameter, 0 disables
+ * buffering. Data written is sent when the output stream is flushed or
+ * closed, or when the connection is closed.
+ *
+ * The connection can be registered with a jelatine.cldc.io.Selector, which
+ * makes the socket non-blocking. A non-blocking socket is accessed with
+ * receive() and send() only: it cannot be switched to non-blocking mode
+ * while one of its streams is open, and no stream can be opened while it is
+ * non-blocking. */
+
+public class ProtocolImpl implements Protocol, StreamConnection, Selectable {
+
+    /** Default size of the stream buffers */
+    public static final int DEFAULT_BUFFER_SIZE = 2048;
 
     private String host; /**< Host name or IP address */
     private int port; /**< Port of this connection */
     private int socketId; /**< Native socket id */
+    private int bufferSize = DEFAULT_BUFFER_SIZE; /**< Stream buffer size */
+    private BufferedSocketInputStream input; /**< Buffered input stream, if opened */
+    private OutputStream output; /**< Buffered output stream, if opened */
+    private int openStreams; /**< Streams opened and not closed yet */
+    private boolean blocking = true; /**< Cleared in non-blocking mode */
 
     /**
      * Opens the native socket.
      *
-     * @param host The host name or IP address
+     * @param address The IPv4 address, as returned by Resolver
      * @param timeouts A flag to indicate that the caller wants timeout exceptions
      * @return The socket native id
      */
-    private native int open(String host, int port, boolean timeouts);
+    private native int open(int address, int port, boolean timeouts);
 
     private native int read(int id);
 
@@ -57,8 +79,39 @@ public class ProtocolImpl implements Protocol, StreamConnection {
 
     private native int writeBuf(int id, byte[] buffer, int offset, int length);
 
+    /**
+     * Returns the number of bytes waiting in the socket's receive queue.
+     *
+     * @param id The socket native id
+     * @return The number of bytes which can be read without blocking, or -1
+     * if the connection has been closed by the peer or is in error
+     */
+    private native int available(int id);
+
+    /**
+     * Switches the socket between blocking and non-blocking mode.
+     *
+     * @param id The socket native id
+     * @param blocking true to block, false not to
+     */
+    private native void configureBlocking(int id, boolean blocking);
+
     private native int close(int id);
 
+    /** Wraps a socket accepted by a server socket connection
+     * @param socketId The native id of the accepted socket
+     * @param bufferSize The size of the stream buffers, 0 for unbuffered
+     * streams
+     * @returns A connection for the socket */
+
+    public static ProtocolImpl accepted(int socketId, int bufferSize) {
+        ProtocolImpl connection = new ProtocolImpl();
+
+        connection.socketId = socketId;
+        connection.bufferSize = bufferSize;
+        return connection;
+    }
+
     public Connection open(URL url, int mode, boolean timeouts) throws IllegalArgumentException, IOException {
         String target = url.getTarget();
         int portStartIndex = target.indexOf(':');
@@ -75,34 +128,175 @@ public class ProtocolImpl implements Protocol, StreamConnection {
             throw new IllegalArgumentException("Malformed URL: bad port");
         }
 
-        socketId = open(host, port, timeouts);
+        String params = url.getParams();
+
+        if (params != null) {
+            Hashtable map = url.getParamsMap(params);
+            String size = (String) map.get("bufsize");
+
+            if (size != null) {
+                try {
+                    bufferSize = Integer.parseInt(size);
+                } catch (NumberFormatException e) {
+                    bufferSize = -1;
+                }
+
+                if (bufferSize < 0) {
+                    throw new IllegalArgumentException("Malformed URL: bad bufsize");
+                }
+            }
+        }
+
+        // Host names go through the resolver and its cache
+        socketId = open(Resolver.getDefault().resolve(host), port, timeouts);
         return this;
     }
 
     public DataInputStream openDataInputStream() throws IOException {
-        return new DataInputStream(new SocketInputStream());
+        return new DataInputStream(openInputStream());
     }
 
     public InputStream openInputStream() throws IOException {
-        return new SocketInputStream();
+        streamOpened();
+
+        InputStream in = new SocketInputStream();
+
+        if (bufferSize > 0) {
+            input = new BufferedSocketInputStream(in, bufferSize);
+            in = input;
+        }
+
+        return in;
     }
 
     public DataOutputStream openDataOutputStream() throws IOException {
-        return new DataOutputStream(new SocketOutputStream());
+        return new DataOutputStream(openOutputStream());
     }
 
     public OutputStream openOutputStream() throws IOException {
-        return new SocketOutputStream();
+        streamOpened();
+
+        OutputStream out = new SocketOutputStream();
+
+        if (bufferSize > 0) {
+            out = new BufferedOutputStream(out, bufferSize);
+            output = out;
+        }
+
+        return out;
+    }
+
+    /** Tells whether an idle connection can be reused: the peer has not
+     * closed it and no unexpected data is waiting to be read, neither in the
+     * socket's receive queue nor read ahead into the input stream's buffer
+     * @returns true if the connection looks healthy */
+
+    public boolean isHealthy() {
+        if (input != null && input.unread() > 0) {
+            return false;
+        }
+
+        return available(socketId) == 0;
+    }
+
+    /** Sends the data buffered in the output stream, if any
+     * @throws IOException if an error occurs */
+
+    public void flush() throws IOException {
+        if (output != null) {
+            output.flush();
+        }
+    }
+
+    public int getNativeId() {
+        return socketId;
+    }
+
+    /** Switches the socket between blocking and non-blocking mode
+     * @param blocking true to block, false not to
+     * @throws IOException if one of the streams is open and non-blocking
+     * mode is requested, or if an error occurs */
+
+    public synchronized void setBlocking(boolean blocking) throws IOException {
+        if (!blocking && openStreams > 0) {
+            throw new IOException("Streams are open");
+        }
+
+        configureBlocking(socketId, blocking);
+        this.blocking = blocking;
+    }
+
+    /** Counts a newly opened stream, non-blocking sockets have none
+     * @throws IOException if the socket is non-blocking */
+
+    private synchronized void streamOpened() throws IOException {
+        if (!blocking) {
+            throw new IOException("Non-blocking connection, use receive() and send()");
+        }
+
+        openStreams++;
     }
 
+    /** Called when one of the streams is closed */
+
+    private synchronized void streamClosed() {
+        openStreams--;
+    }
+
+    /** Reads bytes straight from the socket, bypassing the stream buffers.
+     * A non-blocking socket returns 0 when no data is available.
+     * @param b The array into which the bytes read should be stored
+     * @param off The offset into the array to start storing bytes
+     * @param len The maximum number of bytes to read
+     * @return The number of bytes read, or -1 if the peer closed the
+     * connection
+     * @throws IOException if an error occurs */
+
+    public int receive(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return readBuf(socketId, b, off, len);
+    }
+
+    /** Writes bytes straight to the socket, bypassing the stream buffers.
+     * A non-blocking socket may accept only part of the bytes.
+     * @param b The bytes to write
+     * @param off The offset of the first byte to write
+     * @param len The number of bytes to write
+     * @return The number of bytes written
+     * @throws IOException if an error occurs */
+
+    public int send(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return writeBuf(socketId, b, off, len);
+    }
+
+    /** Closes the socket, sending any data still buffered in the output
+     * stream first
+     * @throws IOException if an error occurs */
+
     public void close() throws IOException {
-       close(socketId);
+        try {
+            if (output != null) {
+                output.flush();
+            }
+        } finally {
+            output = null;
+            close(socketId);
+        }
     }
 
     /** java.io.InputStream wrapper for sockets */
 
     class SocketInputStream extends InputStream {
 
+        private boolean closed; /**< Set once the stream is closed */
+
         /** Reads the next byte from the input stream
          * @return The next byte in the input stream or -1 if no more data can
          * be read
@@ -136,12 +330,51 @@ public class ProtocolImpl implements Protocol, StreamConnection {
             return ProtocolImpl.this.readBuf(socketId, b, off, len);
         }
 
+        /** Returns the number of bytes waiting in the socket's receive
+         * queue
+         * @return The number of bytes which can be read without blocking
+         * @throws IOException if an error occurs */
+
+        public int available() throws IOException {
+            int n = ProtocolImpl.this.available(socketId);
+
+            return (n > 0) ? n : 0;
+        }
+
+        /** Closes the stream, the connection stays open */
+
+        public void close() {
+            if (!closed) {
+                closed = true;
+                streamClosed();
+            }
+        }
+
+    }
+
+    /** Buffered input stream which can tell how many bytes it read ahead */
+
+    static class BufferedSocketInputStream extends BufferedInputStream {
+
+        BufferedSocketInputStream(InputStream in, int size) {
+            super(in, size);
+        }
+
+        /** @returns The number of bytes buffered and not read yet, bytes
+         * dropped by close() included */
+
+        synchronized int unread() {
+            return count - pos;
+        }
+
     }
 
     /** java.io.OutputStream wrapper for socekts */
 
     class SocketOutputStream extends OutputStream {
 
+        private boolean closed; /**< Set once the stream is closed */
+
         public void write(int b) throws IOException {
             ProtocolImpl.this.write(socketId, b);
         }
@@ -154,6 +387,15 @@ public class ProtocolImpl implements Protocol, StreamConnection {
             ProtocolImpl.this.writeBuf(socketId, b, off, len);
         }
 
+        /** Closes the stream, the connection stays open */
+
+        public void close() {
+            if (!closed) {
+                closed = true;
+                streamClosed();
+            }
+        }
+
     }
 
 }
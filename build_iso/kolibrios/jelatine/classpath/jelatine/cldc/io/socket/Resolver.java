@@ -0,0 +1,127 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.cldc.io.socket;
+
+import java.io.IOException;
+
+import javax.microedition.io.ConnectionNotFoundException;
+
+/** Resolves host names to IPv4 addresses for the socket protocol. The base
+ * class asks the VM, subclasses can replace it, for example with a stub
+ * returning fixed addresses in tests. The resolver used by socket
+ * connections is set with setDefault(), initially a CachingResolver in front
+ * of the VM lookup. Addresses are handled as ints, the first octet in the
+ * most significant byte. */
+
+public class Resolver {
+
+    private static Resolver defaultResolver = new CachingResolver(new Resolver());
+
+    /**
+     * Looks up a host name.
+     *
+     * @param host The host name
+     * @param address Filled with the address on success
+     * @return false if the name cannot be resolved
+     */
+    private static native boolean lookup(String host, int[] address);
+
+    /** Returns the resolver used by socket connections
+     * @returns The default resolver */
+
+    public static synchronized Resolver getDefault() {
+        return defaultResolver;
+    }
+
+    /** Replaces the resolver used by socket connections
+     * @param resolver The new default resolver */
+
+    public static synchronized void setDefault(Resolver resolver) {
+        if (resolver == null) {
+            throw new NullPointerException();
+        }
+
+        defaultResolver = resolver;
+    }
+
+    /** Resolves a host name, numeric addresses are parsed without a lookup
+     * @param host The host name or dotted IPv4 address
+     * @returns The address
+     * @throws ConnectionNotFoundException if the name cannot be resolved
+     * @throws IOException if another error occurs */
+
+    public int resolve(String host) throws IOException {
+        int address = parseAddress(host);
+
+        if (address != -1 || "255.255.255.255".equals(host)) {
+            return address;
+        }
+
+        int[] result = new int[1];
+
+        if (!lookup(host, result)) {
+            throw new ConnectionNotFoundException("Unknown host: " + host);
+        }
+
+        return result[0];
+    }
+
+    /** Parses a dotted IPv4 address
+     * @param host The string to parse
+     * @returns The address, or -1 if the string is not a dotted address
+     * (which is also the value of 255.255.255.255) */
+
+    public static int parseAddress(String host) {
+        int address = 0;
+        int octets = 0;
+        int value = -1;
+        int len = host.length();
+
+        for (int i = 0; i <= len; i++) {
+            char c = (i < len) ? host.charAt(i) : '.';
+
+            if (c >= '0' && c <= '9') {
+                value = ((value < 0) ? 0 : value * 10) + (c - '0');
+
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 4) {
+                address = (address << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+
+        return (octets == 4) ? address : -1;
+    }
+
+    /** Formats an IPv4 address in dotted form
+     * @param address The address
+     * @returns The dotted string */
+
+    public static String formatAddress(int address) {
+        return ((address >>> 24) & 0xff) + "." + ((address >>> 16) & 0xff)
+            + "." + ((address >>> 8) & 0xff) + "." + (address & 0xff);
+    }
+
+}
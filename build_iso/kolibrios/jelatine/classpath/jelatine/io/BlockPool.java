@@ -0,0 +1,110 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.io;
+
+/**
+ * Pool of equally sized byte arrays. Streams which store their data in
+ * blocks take them from a pool and give them back when they are done, so
+ * that building and discarding messages does not keep allocating large
+ * arrays. A pool holds on to a bounded number of free blocks, blocks given
+ * back beyond that are left to the garbage collector.
+ */
+public final class BlockPool
+{
+    /** Block size of the default pool */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /** Number of free blocks kept by the default pool */
+    public static final int DEFAULT_MAX_FREE = 16;
+
+    /** Pool shared by streams which do not specify one */
+    private static final BlockPool defaultPool
+        = new BlockPool(DEFAULT_BLOCK_SIZE, DEFAULT_MAX_FREE);
+
+    /** Size of the blocks */
+    private final int blockSize;
+
+    /** Free blocks */
+    private final byte[][] free;
+
+    /** Number of free blocks */
+    private int count;
+
+    /**
+     * Creates a new pool
+     * @param blockSize The size in bytes of the blocks
+     * @param maxFree The maximum number of free blocks kept
+     * @throws IllegalArgumentException if blockSize is not positive or
+     * maxFree is negative
+     */
+    public BlockPool(int blockSize, int maxFree)
+    {
+        if (blockSize <= 0 || maxFree < 0)
+            throw new IllegalArgumentException();
+
+        this.blockSize = blockSize;
+        free = new byte[maxFree][];
+    }
+
+    /**
+     * Returns the pool shared by streams which do not specify one
+     * @return The default pool
+     */
+    public static BlockPool getDefault()
+    {
+        return defaultPool;
+    }
+
+    /**
+     * Returns the size of the blocks of this pool
+     * @return The block size in bytes
+     */
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * Takes a block from the pool, allocating a new one if none is free. The
+     * contents of a recycled block are undefined.
+     * @return A block of getBlockSize() bytes
+     */
+    public synchronized byte[] take()
+    {
+        if (count == 0)
+            return new byte[blockSize];
+
+        byte[] block = free[--count];
+
+        free[count] = null;
+        return block;
+    }
+
+    /**
+     * Gives a block back to the pool, the caller must not use it afterwards.
+     * Blocks of the wrong size are ignored.
+     * @param block The block
+     */
+    public synchronized void give(byte[] block)
+    {
+        if (block.length == blockSize && count < free.length)
+            free[count++] = block;
+    }
+}
@@ -0,0 +1,305 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Input stream which reads the underlying stream in large chunks and serves
+ * smaller reads from its buffer, so that reading a stream a few bytes at a
+ * time does not cost one native call per byte. Marking is supported, the
+ * buffer grows up to the mark's read limit if needed.
+ * <p>
+ * A non-blocking underlying stream which returns no data makes the reads
+ * throw an <code>InterruptedIOException</code> instead of waiting, since
+ * returning 0 would break the <code>InputStream</code> contract.
+ */
+public class BufferedInputStream extends InputStream
+{
+    /** Default size of the buffer */
+    public static final int DEFAULT_SIZE = 2048;
+
+    /** The underlying stream, null once closed */
+    protected InputStream in;
+
+    /** The buffer, null once closed */
+    protected byte[] buf;
+
+    /** Number of valid bytes in the buffer */
+    protected int count;
+
+    /** Index of the next byte to be read from the buffer */
+    protected int pos;
+
+    /** Index of the marked byte in the buffer, -1 if there is no mark */
+    protected int markpos = -1;
+
+    /** Number of bytes which can be read before the mark is dropped */
+    protected int marklimit;
+
+    /**
+     * Creates a buffered stream with the default buffer size
+     * @param in The underlying stream
+     */
+    public BufferedInputStream(InputStream in)
+    {
+        this(in, DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a buffered stream with the specified buffer size
+     * @param in The underlying stream
+     * @param size The buffer size in bytes
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public BufferedInputStream(InputStream in, int size)
+    {
+        if (size <= 0)
+            throw new IllegalArgumentException();
+
+        this.in = in;
+        buf = new byte[size];
+    }
+
+    /**
+     * Returns the number of bytes which can be read without blocking, the
+     * buffered ones plus those the underlying stream reports
+     * @return The number of available bytes
+     * @throws IOException if the stream is closed or an I/O error occurs
+     */
+    public synchronized int available() throws IOException
+    {
+        ensureOpen();
+        return (count - pos) + in.available();
+    }
+
+    /**
+     * Reads one byte
+     * @return The byte, or -1 at the end of the stream
+     * @throws InterruptedIOException if a non-blocking underlying stream
+     * has no data
+     * @throws IOException if the stream is closed or an I/O error occurs
+     */
+    public synchronized int read() throws IOException
+    {
+        ensureOpen();
+
+        if (pos >= count && fill() < 0)
+            return -1;
+
+        return buf[pos++] & 0xff;
+    }
+
+    /**
+     * Reads up to <code>len</code> bytes. Requests at least as large as the
+     * buffer bypass it when it is empty and no mark is set.
+     * @param b The destination array
+     * @param off The index of the first byte to store
+     * @param len The maximum number of bytes to read
+     * @return The number of bytes read, or -1 at the end of the stream
+     * @throws InterruptedIOException if a non-blocking underlying stream
+     * has no data
+     * @throws IOException if the stream is closed or an I/O error occurs
+     */
+    public synchronized int read(byte[] b, int off, int len)
+        throws IOException
+    {
+        ensureOpen();
+
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new IndexOutOfBoundsException();
+
+        if (len == 0)
+            return 0;
+
+        int avail = count - pos;
+
+        if (avail <= 0)
+        {
+            if (len >= buf.length && markpos < 0)
+                return checkData(in.read(b, off, len));
+
+            if (fill() < 0)
+                return -1;
+
+            avail = count - pos;
+        }
+
+        int n = (avail < len) ? avail : len;
+
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    /**
+     * Skips over bytes, the buffered ones first
+     * @param n The number of bytes to skip
+     * @return The number of bytes skipped
+     * @throws IOException if the stream is closed or an I/O error occurs
+     */
+    public synchronized long skip(long n) throws IOException
+    {
+        ensureOpen();
+
+        if (n <= 0)
+            return 0;
+
+        int avail = count - pos;
+
+        if (avail <= 0)
+        {
+            if (markpos < 0)
+                return in.skip(n);
+
+            if (fill() <= 0)
+                return 0;
+
+            avail = count - pos;
+        }
+
+        int skipped = (avail < n) ? avail : (int) n;
+
+        pos += skipped;
+        return skipped;
+    }
+
+    /**
+     * Marks the current position
+     * @param readlimit The number of bytes which can be read before the mark
+     * is dropped
+     */
+    public synchronized void mark(int readlimit)
+    {
+        marklimit = readlimit;
+        markpos = pos;
+    }
+
+    /**
+     * Returns to the marked position
+     * @throws IOException if there is no valid mark or the stream is closed
+     */
+    public synchronized void reset() throws IOException
+    {
+        ensureOpen();
+
+        if (markpos < 0)
+            throw new IOException("Resetting to invalid mark");
+
+        pos = markpos;
+    }
+
+    /**
+     * Tells that marking is supported
+     * @return true
+     */
+    public boolean markSupported()
+    {
+        return true;
+    }
+
+    /**
+     * Closes the stream and the underlying stream
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void close() throws IOException
+    {
+        if (in != null)
+        {
+            InputStream input = in;
+
+            in = null;
+            buf = null;
+            input.close();
+        }
+    }
+
+    /**
+     * Refills the buffer, keeping the marked bytes while within the limit
+     * @return The number of bytes read, or -1 at the end of the stream
+     * @throws InterruptedIOException if the underlying stream had no data
+     */
+    private int fill() throws IOException
+    {
+        if (markpos < 0)
+        {
+            pos = 0;
+        }
+        else if (pos >= buf.length)
+        {
+            if (markpos > 0)
+            {
+                // Move the marked bytes to the front
+                int keep = pos - markpos;
+
+                System.arraycopy(buf, markpos, buf, 0, keep);
+                pos = keep;
+                markpos = 0;
+            }
+            else if (buf.length >= marklimit)
+            {
+                // Too many bytes read since the mark, drop it
+                markpos = -1;
+                pos = 0;
+            }
+            else
+            {
+                int size = buf.length * 2;
+                byte[] nb = new byte[(size < marklimit) ? size : marklimit];
+
+                System.arraycopy(buf, 0, nb, 0, pos);
+                buf = nb;
+            }
+        }
+
+        count = pos;
+
+        int n = checkData(in.read(buf, pos, buf.length - pos));
+
+        if (n > 0)
+            count = pos + n;
+
+        return n;
+    }
+
+    /**
+     * Checks the result of a read from the underlying stream
+     * @param n The number of bytes read
+     * @return n
+     * @throws InterruptedIOException if n is 0, a non-blocking stream had no
+     * data
+     */
+    private static int checkData(int n) throws InterruptedIOException
+    {
+        if (n == 0)
+            throw new InterruptedIOException("No data available");
+
+        return n;
+    }
+
+    /** Throws an exception if the stream is closed */
+    private void ensureOpen() throws IOException
+    {
+        if (in == null)
+            throw new IOException("Stream closed");
+    }
+}
@@ -0,0 +1,149 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which collects small writes in a buffer and passes them to
+ * the underlying stream in large chunks, so that writing a few bytes at a
+ * time does not cost one native call per byte. The buffered bytes are
+ * written out when the buffer is full, on {@link #flush()} and on
+ * {@link #close()}.
+ */
+public class BufferedOutputStream extends OutputStream
+{
+    /** Default size of the buffer */
+    public static final int DEFAULT_SIZE = 2048;
+
+    /** The underlying stream */
+    protected OutputStream out;
+
+    /** The buffer */
+    protected byte[] buf;
+
+    /** Number of valid bytes in the buffer */
+    protected int count;
+
+    /**
+     * Creates a buffered stream with the default buffer size
+     * @param out The underlying stream
+     */
+    public BufferedOutputStream(OutputStream out)
+    {
+        this(out, DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a buffered stream with the specified buffer size
+     * @param out The underlying stream
+     * @param size The buffer size in bytes
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public BufferedOutputStream(OutputStream out, int size)
+    {
+        if (size <= 0)
+            throw new IllegalArgumentException();
+
+        this.out = out;
+        buf = new byte[size];
+    }
+
+    /**
+     * Writes one byte
+     * @param b The byte to write
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void write(int b) throws IOException
+    {
+        if (count == buf.length)
+            flushBuffer();
+
+        buf[count++] = (byte) b;
+    }
+
+    /**
+     * Writes bytes, chunks at least as large as the buffer are passed
+     * directly to the underlying stream
+     * @param b The bytes to write
+     * @param off The index of the first byte
+     * @param len The number of bytes
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void write(byte[] b, int off, int len)
+        throws IOException
+    {
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new IndexOutOfBoundsException();
+
+        if (len >= buf.length)
+        {
+            flushBuffer();
+            out.write(b, off, len);
+            return;
+        }
+
+        if (len > buf.length - count)
+            flushBuffer();
+
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * Writes out the buffered bytes and flushes the underlying stream
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void flush() throws IOException
+    {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Flushes and closes the stream and the underlying stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes out the buffered bytes without flushing the underlying stream
+     * @throws IOException if an I/O error occurs
+     */
+    protected void flushBuffer() throws IOException
+    {
+        if (count > 0)
+        {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+}
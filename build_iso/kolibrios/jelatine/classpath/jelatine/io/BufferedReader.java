@@ -0,0 +1,341 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Reader which decodes an input stream a block at a time into its own
+ * character buffer. Multi-byte sequences split across blocks are carried over
+ * to the next one, so they are decoded correctly. Besides the usual
+ * <code>read()</code> methods it provides {@link #readLine()}, which
+ * allocates only the returned string for lines fitting in the buffer.
+ */
+public class BufferedReader extends Reader
+{
+    /** Default size of the buffers */
+    public static final int DEFAULT_SIZE = 1024;
+
+    /** The underlying stream, null once closed */
+    private InputStream in;
+
+    /** Codec used to decode the stream */
+    private Codec codec;
+
+    /** Bytes read from the stream, the first byteCount are not decoded yet */
+    private byte[] bytes;
+
+    /** Number of undecoded bytes at the start of the byte buffer */
+    private int byteCount;
+
+    /** Decoded characters */
+    private char[] chars;
+
+    /** Index of the next character to be returned */
+    private int pos;
+
+    /** Number of valid characters in the character buffer */
+    private int count;
+
+    /** Set when the end of the underlying stream has been reached */
+    private boolean eof;
+
+    /** Set after a line ended with '\r', a following '\n' is skipped */
+    private boolean skipLF;
+
+    /** Scratch buffer for lines spanning several blocks */
+    private char[] line;
+
+    /**
+     * Creates a reader using the default encoding and buffer size
+     * @param in The stream to read from
+     */
+    public BufferedReader(InputStream in)
+    {
+        this(in, Charsets.getDefault(), DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a reader using the specified encoding and the default buffer
+     * size
+     * @param in The stream to read from
+     * @param encoding The name of the encoding
+     * @throws UnsupportedEncodingException if the encoding is not supported
+     */
+    public BufferedReader(InputStream in, String encoding)
+        throws UnsupportedEncodingException
+    {
+        this(in, Charsets.forName(encoding), DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a reader using the specified codec and buffer size
+     * @param in The stream to read from
+     * @param codec The codec used to decode the stream
+     * @param size The size in bytes of the blocks read from the stream
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public BufferedReader(InputStream in, Codec codec, int size)
+    {
+        if (size <= 0)
+            throw new IllegalArgumentException();
+
+        // Leave room for a carried over multi-byte sequence plus one byte
+        if (size < 8)
+            size = 8;
+
+        this.in = in;
+        this.codec = codec;
+        bytes = new byte[size];
+        chars = new char[size]; // A byte never decodes to more than a char
+    }
+
+    /**
+     * Reads one character
+     * @return The character, or -1 at the end of the stream
+     * @throws IOException if the reader is closed or an I/O error occurs
+     */
+    public int read() throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+
+            if (!ensureChars())
+                return -1;
+
+            return chars[pos++];
+        }
+    }
+
+    /**
+     * Reads up to <code>len</code> characters
+     * @param cbuf The destination array
+     * @param off The index of the first character to store
+     * @param len The maximum number of characters to read
+     * @return The number of characters read, or -1 at the end of the stream
+     * @throws IOException if the reader is closed or an I/O error occurs
+     */
+    public int read(char[] cbuf, int off, int len) throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+
+            if (off < 0 || len < 0 || off > cbuf.length - len)
+                throw new IndexOutOfBoundsException();
+
+            if (len == 0)
+                return 0;
+
+            if (!ensureChars())
+                return -1;
+
+            int n = count - pos;
+
+            if (n > len)
+                n = len;
+
+            System.arraycopy(chars, pos, cbuf, off, n);
+            pos += n;
+            return n;
+        }
+    }
+
+    /**
+     * Reads a line of text. A line is terminated by '\n', '\r' or "\r\n",
+     * the terminator is not part of the returned string.
+     * @return The line, or null at the end of the stream
+     * @throws IOException if the reader is closed or an I/O error occurs
+     */
+    public String readLine() throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+
+            int len = 0;
+
+            while (ensureChars())
+            {
+                int start = pos;
+                int i = pos;
+
+                while (i < count && chars[i] != '\n' && chars[i] != '\r')
+                    i++;
+
+                if (i < count)
+                {
+                    String str;
+
+                    if (len == 0)
+                        str = new String(chars, start, i - start);
+                    else
+                    {
+                        len = appendLine(len, start, i);
+                        str = new String(line, 0, len);
+                    }
+
+                    skipLF = (chars[i] == '\r');
+                    pos = i + 1;
+                    return str;
+                }
+
+                len = appendLine(len, start, count);
+                pos = count;
+            }
+
+            return (len > 0) ? new String(line, 0, len) : null;
+        }
+    }
+
+    /**
+     * Tells whether a character can be read without blocking
+     * @return true if characters are buffered or bytes are available
+     * @throws IOException if the reader is closed or an I/O error occurs
+     */
+    public boolean ready() throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+            return (pos < count) || (in.available() > 0);
+        }
+    }
+
+    /**
+     * Closes the reader and the underlying stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException
+    {
+        synchronized (lock)
+        {
+            if (in != null)
+            {
+                InputStream input = in;
+
+                in = null;
+                bytes = null;
+                chars = null;
+                line = null;
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Makes sure at least one character is buffered, consuming the '\n'
+     * following a line terminated by '\r'
+     * @return false at the end of the stream
+     */
+    private boolean ensureChars() throws IOException
+    {
+        while (true)
+        {
+            if (pos >= count && !fill())
+                return false;
+
+            if (skipLF)
+            {
+                skipLF = false;
+
+                if (chars[pos] == '\n')
+                {
+                    pos++;
+                    continue;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Reads and decodes the next block of the stream
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException
+    {
+        pos = 0;
+        count = 0;
+
+        while (count == 0)
+        {
+            if (eof)
+                return false;
+
+            int n = in.read(bytes, byteCount, bytes.length - byteCount);
+
+            if (n < 0)
+            {
+                // Decode whatever incomplete sequence is left
+                eof = true;
+                count = codec.decode(bytes, 0, byteCount, chars, 0);
+                byteCount = 0;
+            }
+            else
+            {
+                int total = byteCount + n;
+                int complete = codec.completeLength(bytes, 0, total);
+
+                count = codec.decode(bytes, 0, complete, chars, 0);
+                byteCount = total - complete;
+                System.arraycopy(bytes, complete, bytes, 0, byteCount);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Appends buffered characters to the line scratch buffer, growing it as
+     * needed
+     * @return The new length of the line
+     */
+    private int appendLine(int len, int start, int end)
+    {
+        int n = end - start;
+
+        if (line == null || line.length < len + n)
+        {
+            int size = (line == null) ? chars.length : line.length * 2;
+            char[] nl = new char[(size < len + n) ? len + n : size];
+
+            if (len > 0)
+                System.arraycopy(line, 0, nl, 0, len);
+
+            line = nl;
+        }
+
+        System.arraycopy(chars, start, line, len, n);
+        return len + n;
+    }
+
+    /** Throws an exception if the reader is closed */
+    private void ensureOpen() throws IOException
+    {
+        if (in == null)
+            throw new IOException("Reader closed");
+    }
+}
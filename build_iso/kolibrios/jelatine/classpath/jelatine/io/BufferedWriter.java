@@ -0,0 +1,314 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+
+/**
+ * Writer which encodes characters with a {@link Codec} into its own byte
+ * buffer and passes the buffer to the underlying stream only when it is full,
+ * on {@link #flush()} and on {@link #close()}. Strings are copied through a
+ * reusable scratch array, so writing does not allocate. A high surrogate at
+ * the end of a write is held back until the next one so that pairs split
+ * across calls are still encoded together.
+ */
+public class BufferedWriter extends Writer
+{
+    /** Default size of the byte buffer */
+    public static final int DEFAULT_SIZE = 1024;
+
+    /** The underlying stream, null once closed */
+    private OutputStream out;
+
+    /** Codec used to encode the characters */
+    private Codec codec;
+
+    /** Encoded bytes waiting to be written */
+    private byte[] bytes;
+
+    /** Number of valid bytes in the byte buffer */
+    private int count;
+
+    /** Scratch buffer for characters copied out of strings, its length is
+     * the number of characters encoded at a time */
+    private char[] chars;
+
+    /** Scratch buffer used to encode a held back surrogate pair */
+    private final char[] pair = new char[2];
+
+    /** High surrogate held back from the previous write, 0 if none */
+    private char surrogate;
+
+    /** Line separator written by newLine() */
+    private static final char[] lineSeparator
+        = System.getProperty("line.separator").toCharArray();
+
+    /**
+     * Creates a writer using the default encoding and buffer size
+     * @param out The stream to write to
+     */
+    public BufferedWriter(OutputStream out)
+    {
+        this(out, Charsets.getDefault(), DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a writer using the specified encoding and the default buffer
+     * size
+     * @param out The stream to write to
+     * @param encoding The name of the encoding
+     * @throws UnsupportedEncodingException if the encoding is not supported
+     */
+    public BufferedWriter(OutputStream out, String encoding)
+        throws UnsupportedEncodingException
+    {
+        this(out, Charsets.forName(encoding), DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a writer using the specified codec and buffer size
+     * @param out The stream to write to
+     * @param codec The codec used to encode the characters
+     * @param size The size in bytes of the buffer
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public BufferedWriter(OutputStream out, Codec codec, int size)
+    {
+        if (size <= 0)
+            throw new IllegalArgumentException();
+
+        // Leave room for at least a surrogate pair
+        if (size < 16)
+            size = 16;
+
+        this.out = out;
+        this.codec = codec;
+        bytes = new byte[size];
+        chars = new char[size / codec.maxBytesPerChar()];
+    }
+
+    /**
+     * Writes one character
+     * @param c The character to write
+     * @throws IOException if the writer is closed or an I/O error occurs
+     */
+    public void write(int c) throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+            chars[0] = (char) c;
+            encode(chars, 0, 1);
+        }
+    }
+
+    /**
+     * Writes characters from an array
+     * @param cbuf The characters to write
+     * @param off The index of the first character
+     * @param len The number of characters
+     * @throws IOException if the writer is closed or an I/O error occurs
+     */
+    public void write(char[] cbuf, int off, int len) throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+
+            if (off < 0 || len < 0 || off > cbuf.length - len)
+                throw new IndexOutOfBoundsException();
+
+            encode(cbuf, off, len);
+        }
+    }
+
+    /**
+     * Writes characters from a string
+     * @param str The string holding the characters
+     * @param off The index of the first character
+     * @param len The number of characters
+     * @throws IOException if the writer is closed or an I/O error occurs
+     */
+    public void write(String str, int off, int len) throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+
+            if (off < 0 || len < 0 || off > str.length() - len)
+                throw new IndexOutOfBoundsException();
+
+            while (len > 0)
+            {
+                int n = (len < chars.length) ? len : chars.length;
+
+                str.getChars(off, off + n, chars, 0);
+                encode(chars, 0, n);
+                off += n;
+                len -= n;
+            }
+        }
+    }
+
+    /**
+     * Writes a line separator
+     * @throws IOException if the writer is closed or an I/O error occurs
+     */
+    public void newLine() throws IOException
+    {
+        write(lineSeparator, 0, lineSeparator.length);
+    }
+
+    /**
+     * Writes out the buffered bytes and flushes the underlying stream. A
+     * held back high surrogate stays buffered.
+     * @throws IOException if the writer is closed or an I/O error occurs
+     */
+    public void flush() throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+            flushBuffer();
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes out the buffered bytes, then closes the underlying stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException
+    {
+        synchronized (lock)
+        {
+            if (out == null)
+                return;
+
+            try
+            {
+                if (surrogate != 0)
+                {
+                    pair[0] = surrogate;
+                    surrogate = 0;
+                    encodeChunk(pair, 0, 1);
+                }
+
+                flushBuffer();
+                out.flush();
+            }
+            finally
+            {
+                OutputStream output = out;
+
+                out = null;
+                bytes = null;
+                chars = null;
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Encodes characters into the byte buffer a chunk at a time, never
+     * splitting a surrogate pair between chunks
+     */
+    private void encode(char[] buf, int off, int len) throws IOException
+    {
+        if (len == 0)
+            return;
+
+        if (surrogate != 0)
+        {
+            pair[0] = surrogate;
+            surrogate = 0;
+
+            if (buf[off] >= '\uDC00' && buf[off] <= '\uDFFF')
+            {
+                pair[1] = buf[off];
+                encodeChunk(pair, 0, 2);
+                off++;
+                len--;
+            }
+            else
+                encodeChunk(pair, 0, 1);
+        }
+
+        while (len > 0)
+        {
+            int n = (len < chars.length) ? len : chars.length;
+
+            if (isHighSurrogate(buf[off + n - 1]))
+            {
+                if (n == len)
+                {
+                    // Wait for the low surrogate
+                    surrogate = buf[off + n - 1];
+                    len--;
+                }
+
+                n--;
+            }
+
+            encodeChunk(buf, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Encodes a chunk of characters, writing out the byte buffer first if
+     * the chunk might not fit
+     */
+    private void encodeChunk(char[] buf, int off, int len) throws IOException
+    {
+        if (count + len * codec.maxBytesPerChar() > bytes.length)
+            flushBuffer();
+
+        count += codec.encode(buf, off, len, bytes, count);
+    }
+
+    /** Writes out the buffered bytes without flushing the stream */
+    private void flushBuffer() throws IOException
+    {
+        if (count > 0)
+        {
+            int len = count;
+
+            count = 0;
+            out.write(bytes, 0, len);
+        }
+    }
+
+    /** Throws an exception if the writer is closed */
+    private void ensureOpen() throws IOException
+    {
+        if (out == null)
+            throw new IOException("Writer closed");
+    }
+
+    private static boolean isHighSurrogate(char c)
+    {
+        return c >= '\uD800' && c <= '\uDBFF';
+    }
+}
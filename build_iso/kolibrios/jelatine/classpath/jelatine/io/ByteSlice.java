@@ -0,0 +1,411 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Read-only window over a range of a byte array. Primitive values can be
+ * decoded in place in big-endian or little-endian order, and sub-slices share
+ * the array instead of copying it, so a message can be parsed straight out of
+ * the buffer it was received in. A slice does not copy the array it is given,
+ * changes made to the array are visible through the slice.
+ */
+public final class ByteSlice
+{
+    /** The underlying array */
+    private final byte[] array;
+
+    /** Index in the array of the first byte of the slice */
+    private final int offset;
+
+    /** Number of bytes in the slice */
+    private final int length;
+
+    /**
+     * Creates a slice covering a whole array
+     * @param array The array
+     */
+    public ByteSlice(byte[] array)
+    {
+        this(array, 0, array.length);
+    }
+
+    /**
+     * Creates a slice covering a range of an array
+     * @param array The array
+     * @param offset The index of the first byte of the slice
+     * @param length The number of bytes in the slice
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    public ByteSlice(byte[] array, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset > array.length - length)
+            throw new IndexOutOfBoundsException();
+
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Reads exactly <code>len</code> bytes from a stream into a new slice
+     * @param in The stream
+     * @param len The number of bytes to read
+     * @return A slice over a new array holding the bytes read
+     * @throws EOFException if the stream ends before len bytes are read
+     * @throws IOException if an I/O error occurs
+     */
+    public static ByteSlice readFully(InputStream in, int len)
+        throws IOException
+    {
+        byte[] b = new byte[len];
+
+        if (read(in, b, 0, len).length != len)
+            throw new EOFException();
+
+        return new ByteSlice(b);
+    }
+
+    /**
+     * Reads from a stream into a caller supplied buffer until either
+     * <code>len</code> bytes have been read or the stream ends
+     * @param in The stream
+     * @param buf The buffer receiving the bytes
+     * @param off The index of the first byte to store
+     * @param len The maximum number of bytes to read
+     * @return A slice over the bytes read, shorter than len only at the end of
+     * the stream
+     * @throws IOException if an I/O error occurs
+     */
+    public static ByteSlice read(InputStream in, byte[] buf, int off, int len)
+        throws IOException
+    {
+        if (off < 0 || len < 0 || off > buf.length - len)
+            throw new IndexOutOfBoundsException();
+
+        int total = 0;
+
+        while (total < len)
+        {
+            int n = in.read(buf, off + total, len - total);
+
+            if (n < 0)
+                break;
+
+            total += n;
+        }
+
+        return new ByteSlice(buf, off, total);
+    }
+
+    /**
+     * Returns the underlying array
+     * @return The array, shared with the slice
+     */
+    public byte[] getArray()
+    {
+        return array;
+    }
+
+    /**
+     * Returns the index in the underlying array of the first byte
+     * @return The offset of the slice
+     */
+    public int getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * Returns the number of bytes in the slice
+     * @return The length of the slice
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * Returns a slice of this slice sharing the same array
+     * @param from The index of the first byte, relative to this slice
+     * @param to The index after the last byte, relative to this slice
+     * @return The sub-slice
+     * @throws IndexOutOfBoundsException if the range is outside the slice
+     */
+    public ByteSlice slice(int from, int to)
+    {
+        if (from < 0 || to > length || from > to)
+            throw new IndexOutOfBoundsException();
+
+        return new ByteSlice(array, offset + from, to - from);
+    }
+
+    /**
+     * Returns the index of the first occurrence of a byte
+     * @param b The byte to look for
+     * @param from The index where the search starts
+     * @return The index relative to this slice, or -1 if not found
+     */
+    public int indexOf(int b, int from)
+    {
+        if (from < 0)
+            from = 0;
+
+        byte v = (byte) b;
+
+        for (int i = offset + from; i < offset + length; i++)
+        {
+            if (array[i] == v)
+                return i - offset;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns a byte
+     * @param index The index of the byte
+     * @return The byte
+     */
+    public byte get(int index)
+    {
+        return array[check(index, 1)];
+    }
+
+    /**
+     * Returns a byte as an unsigned value
+     * @param index The index of the byte
+     * @return The byte, between 0 and 255
+     */
+    public int getUnsigned(int index)
+    {
+        return array[check(index, 1)] & 0xff;
+    }
+
+    /**
+     * Decodes a big-endian short
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public short getShort(int index)
+    {
+        int i = check(index, 2);
+
+        return (short) ((array[i] << 8) | (array[i + 1] & 0xff));
+    }
+
+    /**
+     * Decodes a little-endian short
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public short getShortLE(int index)
+    {
+        int i = check(index, 2);
+
+        return (short) ((array[i + 1] << 8) | (array[i] & 0xff));
+    }
+
+    /**
+     * Decodes a big-endian unsigned short
+     * @param index The index of the first byte
+     * @return The value, between 0 and 65535
+     */
+    public int getUnsignedShort(int index)
+    {
+        return getShort(index) & 0xffff;
+    }
+
+    /**
+     * Decodes a little-endian unsigned short
+     * @param index The index of the first byte
+     * @return The value, between 0 and 65535
+     */
+    public int getUnsignedShortLE(int index)
+    {
+        return getShortLE(index) & 0xffff;
+    }
+
+    /**
+     * Decodes a big-endian int
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public int getInt(int index)
+    {
+        int i = check(index, 4);
+
+        return (array[i] << 24) | ((array[i + 1] & 0xff) << 16)
+            | ((array[i + 2] & 0xff) << 8) | (array[i + 3] & 0xff);
+    }
+
+    /**
+     * Decodes a little-endian int
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public int getIntLE(int index)
+    {
+        int i = check(index, 4);
+
+        return (array[i + 3] << 24) | ((array[i + 2] & 0xff) << 16)
+            | ((array[i + 1] & 0xff) << 8) | (array[i] & 0xff);
+    }
+
+    /**
+     * Decodes a big-endian long
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public long getLong(int index)
+    {
+        check(index, 8);
+
+        return ((long) getInt(index) << 32)
+            | (getInt(index + 4) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Decodes a little-endian long
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public long getLongLE(int index)
+    {
+        check(index, 8);
+
+        return ((long) getIntLE(index + 4) << 32)
+            | (getIntLE(index) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Decodes a big-endian float
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public float getFloat(int index)
+    {
+        return Float.intBitsToFloat(getInt(index));
+    }
+
+    /**
+     * Decodes a little-endian float
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public float getFloatLE(int index)
+    {
+        return Float.intBitsToFloat(getIntLE(index));
+    }
+
+    /**
+     * Decodes a big-endian double
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public double getDouble(int index)
+    {
+        return Double.longBitsToDouble(getLong(index));
+    }
+
+    /**
+     * Decodes a little-endian double
+     * @param index The index of the first byte
+     * @return The value
+     */
+    public double getDoubleLE(int index)
+    {
+        return Double.longBitsToDouble(getLongLE(index));
+    }
+
+    /**
+     * Decodes a range of the slice into a string
+     * @param index The index of the first byte
+     * @param len The number of bytes
+     * @param codec The codec used to decode the bytes
+     * @return The decoded string
+     */
+    public String getString(int index, int len, Codec codec)
+    {
+        int i = check(index, len);
+
+        return new String(codec.decode(array, i, len));
+    }
+
+    /**
+     * Copies a range of the slice into an array
+     * @param index The index of the first byte
+     * @param dst The destination array
+     * @param dstOff The index of the first byte to store
+     * @param len The number of bytes
+     */
+    public void copyTo(int index, byte[] dst, int dstOff, int len)
+    {
+        System.arraycopy(array, check(index, len), dst, dstOff, len);
+    }
+
+    /**
+     * Returns a copy of the slice contents
+     * @return A new array
+     */
+    public byte[] toByteArray()
+    {
+        byte[] b = new byte[length];
+
+        System.arraycopy(array, offset, b, 0, length);
+        return b;
+    }
+
+    /**
+     * Returns a stream reading the slice contents without copying them
+     * @return A new input stream
+     */
+    public InputStream toInputStream()
+    {
+        return new ByteArrayInputStream(array, offset, length);
+    }
+
+    /**
+     * Writes the slice contents to a stream with a single write
+     * @param out The stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(OutputStream out) throws IOException
+    {
+        out.write(array, offset, length);
+    }
+
+    /**
+     * Checks that a range lies within the slice
+     * @return The index in the array of the first byte of the range
+     */
+    private int check(int index, int len)
+    {
+        if (index < 0 || len < 0 || index > length - len)
+            throw new IndexOutOfBoundsException();
+
+        return offset + index;
+    }
+}
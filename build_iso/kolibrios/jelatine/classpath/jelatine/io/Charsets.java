@@ -0,0 +1,102 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+package jelatine.io;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Hashtable;
+
+/**
+ * Registry of the character encodings supported by the class library. An
+ * encoding name is resolved once to a {@link Codec} which can then be kept
+ * and used directly, without comparing names on every conversion.
+ */
+public final class Charsets
+{
+    /** ISO-8859-1 codec, the platform default encoding */
+    public static final Codec ISO_8859_1 = new Latin1Codec();
+
+    /** US-ASCII codec */
+    public static final Codec US_ASCII = new AsciiCodec();
+
+    /** UTF-8 codec */
+    public static final Codec UTF_8 = new UTF8Codec();
+
+    /** Codecs indexed by all their accepted names */
+    private static final Hashtable codecs = new Hashtable();
+
+    static
+    {
+        register(ISO_8859_1, "ISO8859_1");
+        register(ISO_8859_1, "ISO-8859-1");
+        register(ISO_8859_1, "ISO_8859_1");
+        register(ISO_8859_1, "ISO8859-1");
+        register(ISO_8859_1, "8859_1");
+        register(ISO_8859_1, "LATIN1");
+        register(US_ASCII, "US_ASCII");
+        register(US_ASCII, "US-ASCII");
+        register(US_ASCII, "ASCII");
+        register(UTF_8, "UTF-8");
+        register(UTF_8, "UTF8");
+    }
+
+    /**
+     * This class cannot be instantiated
+     */
+    private Charsets()
+    {
+        ;
+    }
+
+    /**
+     * Returns the codec of the platform default encoding, as reported by the
+     * <code>microedition.encoding</code> system property
+     * @return The default codec
+     */
+    public static Codec getDefault()
+    {
+        return ISO_8859_1;
+    }
+
+    /**
+     * Resolves an encoding name to its codec. Names are matched ignoring case.
+     * @param name The encoding name
+     * @return The codec for the encoding
+     * @throws UnsupportedEncodingException If the encoding is not supported
+     * @throws NullPointerException If name is null
+     */
+    public static Codec forName(String name) throws UnsupportedEncodingException
+    {
+        Codec codec = (Codec) codecs.get(name);
+
+        if (codec == null)
+        {
+            codec = (Codec) codecs.get(name.toUpperCase());
+
+            if (codec == null)
+                throw new UnsupportedEncodingException(name);
+        }
+
+        return codec;
+    }
+
+    private static void register(Codec codec, String name)
+    {
+        codecs.put(name, codec);
+    }
+}
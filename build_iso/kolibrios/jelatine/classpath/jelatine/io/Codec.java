@@ -0,0 +1,131 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+package jelatine.io;
+
+/**
+ * Stateless converter between characters and bytes for a single character
+ * encoding. Codec instances are obtained from {@link Charsets} and can be
+ * shared freely between threads and streams.
+ */
+public abstract class Codec
+{
+    /**
+     * Returns the canonical name of the encoding
+     * @return The encoding name
+     */
+    public abstract String getName();
+
+    /**
+     * Returns the maximum number of bytes a single character can be encoded
+     * to. Surrogate pairs are counted as two characters.
+     * @return The maximum number of bytes per character
+     */
+    public abstract int maxBytesPerChar();
+
+    /**
+     * Computes the number of characters the specified bytes decode to
+     * @param src The bytes to decode
+     * @param off The index of the first byte
+     * @param len The number of bytes
+     * @return The number of decoded characters
+     */
+    public abstract int decodedLength(byte[] src, int off, int len);
+
+    /**
+     * Decodes bytes into a caller supplied character array. The array must
+     * have room for {@link #decodedLength(byte[], int, int)} characters, which
+     * is never more than <code>len</code>.
+     * @param src The bytes to decode
+     * @param off The index of the first byte
+     * @param len The number of bytes
+     * @param dst The destination array
+     * @param dstOff The index of the first character to store
+     * @return The number of characters stored in <code>dst</code>
+     */
+    public abstract int decode(byte[] src, int off, int len, char[] dst,
+        int dstOff);
+
+    /**
+     * Returns how many of the specified bytes can be decoded without
+     * splitting a character, that is all of them unless they end in the middle
+     * of a multi-byte sequence. Used to decode a stream a block at a time,
+     * carrying the incomplete tail over to the next block.
+     * @param src The bytes to decode
+     * @param off The index of the first byte
+     * @param len The number of bytes
+     * @return The number of leading bytes which form complete characters
+     */
+    public int completeLength(byte[] src, int off, int len)
+    {
+        return len;
+    }
+
+    /**
+     * Computes the number of bytes the specified characters encode to
+     * @param src The characters to encode
+     * @param off The index of the first character
+     * @param len The number of characters
+     * @return The number of encoded bytes
+     */
+    public abstract int encodedLength(char[] src, int off, int len);
+
+    /**
+     * Encodes characters into a caller supplied byte array. The array must
+     * have room for {@link #encodedLength(char[], int, int)} bytes, which is
+     * never more than <code>len * maxBytesPerChar()</code>.
+     * @param src The characters to encode
+     * @param off The index of the first character
+     * @param len The number of characters
+     * @param dst The destination array
+     * @param dstOff The index of the first byte to store
+     * @return The number of bytes stored in <code>dst</code>
+     */
+    public abstract int encode(char[] src, int off, int len, byte[] dst,
+        int dstOff);
+
+    /**
+     * Decodes bytes into a new character array of exactly the required size
+     * @param src The bytes to decode
+     * @param off The index of the first byte
+     * @param len The number of bytes
+     * @return The decoded characters
+     */
+    public char[] decode(byte[] src, int off, int len)
+    {
+        char[] dst = new char[decodedLength(src, off, len)];
+
+        decode(src, off, len, dst, 0);
+        return dst;
+    }
+
+    /**
+     * Encodes characters into a new byte array of exactly the required size
+     * @param src The characters to encode
+     * @param off The index of the first character
+     * @param len The number of characters
+     * @return The encoded bytes
+     */
+    public byte[] encode(char[] src, int off, int len)
+    {
+        byte[] dst = new byte[encodedLength(src, off, len)];
+
+        encode(src, off, len, dst, 0);
+        return dst;
+    }
+}
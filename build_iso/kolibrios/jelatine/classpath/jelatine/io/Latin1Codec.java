@@ -0,0 +1,66 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+package jelatine.io;
+
+/**
+ * ISO-8859-1 codec, characters outside of the Latin-1 range are encoded as
+ * <code>'?'</code>
+ */
+final class Latin1Codec extends Codec
+{
+    public String getName()
+    {
+        return "ISO-8859-1";
+    }
+
+    public int maxBytesPerChar()
+    {
+        return 1;
+    }
+
+    public int decodedLength(byte[] src, int off, int len)
+    {
+        return len;
+    }
+
+    public int decode(byte[] src, int off, int len, char[] dst, int dstOff)
+    {
+        for (int i = 0; i < len; i++)
+            dst[dstOff + i] = (char) (src[off + i] & 0xFF);
+
+        return len;
+    }
+
+    public int encodedLength(char[] src, int off, int len)
+    {
+        return len;
+    }
+
+    public int encode(char[] src, int off, int len, byte[] dst, int dstOff)
+    {
+        for (int i = 0; i < len; i++)
+        {
+            char c = src[off + i];
+
+            dst[dstOff + i] = (byte) ((c <= 0xFF) ? c : '?');
+        }
+
+        return len;
+    }
+}
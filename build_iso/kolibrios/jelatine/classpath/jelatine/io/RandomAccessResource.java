@@ -0,0 +1,200 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import jelatine.VMResourceStream;
+
+/**
+ * Random access to a resource of the application's JAR file. Reads can start
+ * anywhere in the resource, the VM moves its handle instead of streaming
+ * through the preceding data, so large read-only tables can be kept out of
+ * the heap and only the needed records fetched.
+ */
+public final class RandomAccessResource
+{
+    /** Stream holding the VM handle, null once closed */
+    private VMResourceStream stream;
+
+    /** Size of the resource */
+    private final int length;
+
+    /** Current read position */
+    private int position;
+
+    /**
+     * Opens a resource
+     * @param name The absolute name of the resource, a leading '/' is
+     * optional
+     * @throws IOException if the resource cannot be found
+     */
+    public RandomAccessResource(String name) throws IOException
+    {
+        String path = name.startsWith("/") ? name.substring(1) : name;
+        VMResourceStream rs = new VMResourceStream(path);
+
+        if (!rs.open())
+            throw new IOException("Resource not found: " + name);
+
+        stream = rs;
+        length = rs.size();
+    }
+
+    /**
+     * Returns the size of the resource
+     * @return The length in bytes
+     */
+    public long length()
+    {
+        return length;
+    }
+
+    /**
+     * Returns the current read position
+     * @return The offset from the start of the resource
+     */
+    public synchronized long getFilePointer()
+    {
+        return position;
+    }
+
+    /**
+     * Moves the read position
+     * @param pos The offset from the start of the resource
+     * @throws IOException if pos is negative or past the end of the resource,
+     * or if the resource is closed
+     */
+    public synchronized void seek(long pos) throws IOException
+    {
+        ensureOpen();
+
+        if (pos < 0 || pos > length)
+            throw new IOException("Invalid position: " + pos);
+
+        if (pos != position)
+        {
+            if (!stream.seek((int) pos))
+                throw new IOException("Invalid position: " + pos);
+
+            position = (int) pos;
+        }
+    }
+
+    /**
+     * Reads one byte at the current position
+     * @return The byte, or -1 at the end of the resource
+     * @throws IOException if the resource is closed
+     */
+    public synchronized int read() throws IOException
+    {
+        ensureOpen();
+
+        int b = stream.read();
+
+        if (b >= 0)
+            position++;
+
+        return b;
+    }
+
+    /**
+     * Reads bytes at the current position
+     * @param b The destination array
+     * @param off The index of the first byte to store
+     * @param len The maximum number of bytes to read
+     * @return The number of bytes read, or -1 at the end of the resource
+     * @throws IOException if the resource is closed
+     */
+    public synchronized int read(byte[] b, int off, int len)
+        throws IOException
+    {
+        ensureOpen();
+
+        int n = stream.read(b, off, len);
+
+        if (n > 0)
+            position += n;
+
+        return n;
+    }
+
+    /**
+     * Reads bytes at the specified position, which becomes the current one
+     * @param pos The offset from the start of the resource
+     * @param b The destination array
+     * @param off The index of the first byte to store
+     * @param len The maximum number of bytes to read
+     * @return The number of bytes read, or -1 if pos is the end of the
+     * resource
+     * @throws IOException if pos is invalid or the resource is closed
+     */
+    public synchronized int read(long pos, byte[] b, int off, int len)
+        throws IOException
+    {
+        seek(pos);
+        return read(b, off, len);
+    }
+
+    /**
+     * Reads exactly <code>len</code> bytes at the specified position
+     * @param pos The offset from the start of the resource
+     * @param b The destination array
+     * @param off The index of the first byte to store
+     * @param len The number of bytes to read
+     * @throws EOFException if the resource ends before len bytes are read
+     * @throws IOException if pos is invalid or the resource is closed
+     */
+    public synchronized void readFully(long pos, byte[] b, int off, int len)
+        throws IOException
+    {
+        seek(pos);
+
+        while (len > 0)
+        {
+            int n = read(b, off, len);
+
+            if (n < 0)
+                throw new EOFException();
+
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Closes the resource, releasing its VM handle
+     */
+    public synchronized void close()
+    {
+        if (stream != null)
+        {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    /** Throws an exception if the resource is closed */
+    private void ensureOpen() throws IOException
+    {
+        if (stream == null)
+            throw new IOException("Resource closed");
+    }
+}
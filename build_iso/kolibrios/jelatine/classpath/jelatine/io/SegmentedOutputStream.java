@@ -0,0 +1,214 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Unsynchronized in-memory output stream storing its data in a list of
+ * fixed-size blocks taken from a {@link BlockPool}. Unlike
+ * <code>ByteArrayOutputStream</code> it never copies the data it already
+ * holds when it grows, and {@link #writeTo(OutputStream)} passes the blocks
+ * to another stream as they are, without building a single array. The
+ * blocks go back to the pool on {@link #reset()}, {@link #drainTo(OutputStream)}
+ * and {@link #close()}. A stream must not be shared between threads without
+ * external synchronization, {@link SynchronizedSegmentedOutputStream} can be.
+ */
+public class SegmentedOutputStream extends OutputStream
+{
+    /** Pool the blocks are taken from */
+    private final BlockPool pool;
+
+    /** Size of the blocks */
+    private final int blockSize;
+
+    /** Blocks holding the data, the last one is partially filled */
+    private byte[][] blocks = new byte[4][];
+
+    /** Number of blocks in use */
+    private int blockCount;
+
+    /** Number of bytes in the last block */
+    private int pos;
+
+    /** Total number of bytes written */
+    private int size;
+
+    /**
+     * Creates a stream using the default block pool
+     */
+    public SegmentedOutputStream()
+    {
+        this(BlockPool.getDefault());
+    }
+
+    /**
+     * Creates a stream using the specified block pool
+     * @param pool The pool the blocks are taken from
+     */
+    public SegmentedOutputStream(BlockPool pool)
+    {
+        this.pool = pool;
+        blockSize = pool.getBlockSize();
+        pos = blockSize;
+    }
+
+    /**
+     * Writes one byte
+     * @param b The byte to write
+     */
+    public void write(int b)
+    {
+        if (pos == blockSize)
+            addBlock();
+
+        blocks[blockCount - 1][pos++] = (byte) b;
+        size++;
+    }
+
+    /**
+     * Writes bytes from an array
+     * @param b The bytes to write
+     * @param off The index of the first byte
+     * @param len The number of bytes
+     */
+    public void write(byte[] b, int off, int len)
+    {
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new IndexOutOfBoundsException();
+
+        size += len;
+
+        while (len > 0)
+        {
+            if (pos == blockSize)
+                addBlock();
+
+            int n = blockSize - pos;
+
+            if (n > len)
+                n = len;
+
+            System.arraycopy(b, off, blocks[blockCount - 1], pos, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Returns the number of bytes written since the last reset
+     * @return The number of bytes held by the stream
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Writes the contents of the stream to another stream, one write per
+     * block. The contents are left in place.
+     * @param out The destination stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(OutputStream out) throws IOException
+    {
+        for (int i = 0; i < blockCount; i++)
+        {
+            int len = (i == blockCount - 1) ? pos : blockSize;
+
+            if (len > 0)
+                out.write(blocks[i], 0, len);
+        }
+    }
+
+    /**
+     * Writes the contents of the stream to another stream, then empties it
+     * giving the blocks back to the pool
+     * @param out The destination stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void drainTo(OutputStream out) throws IOException
+    {
+        writeTo(out);
+        reset();
+    }
+
+    /**
+     * Returns a copy of the contents of the stream
+     * @return A new array of size() bytes
+     */
+    public byte[] toByteArray()
+    {
+        byte[] array = new byte[size];
+        int off = 0;
+
+        for (int i = 0; i < blockCount; i++)
+        {
+            int len = (i == blockCount - 1) ? pos : blockSize;
+
+            System.arraycopy(blocks[i], 0, array, off, len);
+            off += len;
+        }
+
+        return array;
+    }
+
+    /**
+     * Empties the stream, giving the blocks back to the pool
+     */
+    public void reset()
+    {
+        for (int i = 0; i < blockCount; i++)
+        {
+            pool.give(blocks[i]);
+            blocks[i] = null;
+        }
+
+        blockCount = 0;
+        pos = blockSize;
+        size = 0;
+    }
+
+    /**
+     * Empties the stream, giving the blocks back to the pool. The stream can
+     * still be written to afterwards.
+     */
+    public void close()
+    {
+        reset();
+    }
+
+    /** Appends an empty block */
+    private void addBlock()
+    {
+        if (blockCount == blocks.length)
+        {
+            byte[][] nb = new byte[blockCount * 2][];
+
+            System.arraycopy(blocks, 0, nb, 0, blockCount);
+            blocks = nb;
+        }
+
+        blocks[blockCount++] = pool.take();
+        pos = 0;
+    }
+}
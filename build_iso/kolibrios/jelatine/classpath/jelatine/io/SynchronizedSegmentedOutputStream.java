@@ -0,0 +1,87 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+package jelatine.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link SegmentedOutputStream} which can be shared between threads. Every
+ * method locks the stream, as <code>ByteArrayOutputStream</code> does;
+ * streams used by a single thread should use the unsynchronized base class.
+ */
+public class SynchronizedSegmentedOutputStream extends SegmentedOutputStream
+{
+    /**
+     * Creates a stream using the default block pool
+     */
+    public SynchronizedSegmentedOutputStream()
+    {
+        super();
+    }
+
+    /**
+     * Creates a stream using the specified block pool
+     * @param pool The pool the blocks are taken from
+     */
+    public SynchronizedSegmentedOutputStream(BlockPool pool)
+    {
+        super(pool);
+    }
+
+    public synchronized void write(int b)
+    {
+        super.write(b);
+    }
+
+    public synchronized void write(byte[] b, int off, int len)
+    {
+        super.write(b, off, len);
+    }
+
+    public synchronized int size()
+    {
+        return super.size();
+    }
+
+    public synchronized void writeTo(OutputStream out) throws IOException
+    {
+        super.writeTo(out);
+    }
+
+    public synchronized void drainTo(OutputStream out) throws IOException
+    {
+        super.drainTo(out);
+    }
+
+    public synchronized byte[] toByteArray()
+    {
+        return super.toByteArray();
+    }
+
+    public synchronized void reset()
+    {
+        super.reset();
+    }
+
+    public synchronized void close()
+    {
+        super.close();
+    }
+}
@@ -0,0 +1,312 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+package jelatine.io;
+
+/**
+ * UTF-8 codec. Truncated, overlong and otherwise malformed sequences, as well
+ * as encoded surrogates, decode to <code>'&#92;uFFFD'</code>; code points
+ * above the BMP are mapped to surrogate pairs. Unpaired surrogates are encoded
+ * as <code>'?'</code>.
+ */
+final class UTF8Codec extends Codec
+{
+    public String getName()
+    {
+        return "UTF-8";
+    }
+
+    public int maxBytesPerChar()
+    {
+        return 3;
+    }
+
+    public int decodedLength(byte[] src, int off, int len)
+    {
+        return decodeRange(src, off, off + len, null, 0);
+    }
+
+    public int decode(byte[] src, int off, int len, char[] dst, int dstOff)
+    {
+        return decodeRange(src, off, off + len, dst, dstOff) - dstOff;
+    }
+
+    public int completeLength(byte[] src, int off, int len)
+    {
+        int i = off + len - 1;
+        int cont = 0;
+
+        // Walk back over the trailing continuation bytes to the lead byte
+        while (i >= off && cont < 3 && (src[i] & 0xC0) == 0x80)
+        {
+            i--;
+            cont++;
+        }
+
+        if (i < off)
+            return len;
+
+        int b = src[i];
+        int need;
+
+        if ((b & 0xE0) == 0xC0) // bit pattern 110xxxxx
+            need = 1;
+        else if ((b & 0xF0) == 0xE0) // bit pattern 1110xxxx
+            need = 2;
+        else if ((b & 0xF8) == 0xF0) // bit pattern 11110xxx
+            need = 3;
+        else
+            return len;
+
+        return (cont < need) ? i - off : len;
+    }
+
+    public int encodedLength(char[] src, int off, int len)
+    {
+        return encodeRange(src, off, off + len, null, 0);
+    }
+
+    public int encode(char[] src, int off, int len, byte[] dst, int dstOff)
+    {
+        return encodeRange(src, off, off + len, dst, dstOff) - dstOff;
+    }
+
+    /**
+     * Decodes bytes into a character array of exactly the required size.
+     * Pure ASCII input is widened straight into the result, anything else goes
+     * through a counting pass followed by a decoding pass so that no temporary
+     * buffer has to be trimmed afterwards.
+     */
+    public char[] decode(byte[] src, int off, int len)
+    {
+        int end = off + len;
+        int i = off;
+
+        while (i < end && src[i] >= 0)
+            i++;
+
+        int ascii = i - off;
+        char[] chars;
+
+        if (i == end)
+            chars = new char[len];
+        else
+            chars = new char[ascii + decodeRange(src, i, end, null, 0)];
+
+        for (int j = 0; j < ascii; j++)
+            chars[j] = (char) src[off + j];
+
+        if (i != end)
+            decodeRange(src, i, end, chars, ascii);
+
+        return chars;
+    }
+
+    /**
+     * Encodes characters into a byte array of exactly the required size. Pure
+     * ASCII input is narrowed straight into the result.
+     */
+    public byte[] encode(char[] src, int off, int len)
+    {
+        int end = off + len;
+        int i = off;
+
+        while (i < end && src[i] < 0x80)
+            i++;
+
+        int ascii = i - off;
+        byte[] bytes;
+
+        if (i == end)
+            bytes = new byte[len];
+        else
+            bytes = new byte[ascii + encodeRange(src, i, end, null, 0)];
+
+        for (int j = 0; j < ascii; j++)
+            bytes[j] = (byte) src[off + j];
+
+        if (i != end)
+            encodeRange(src, i, end, bytes, ascii);
+
+        return bytes;
+    }
+
+    /**
+     * Decodes UTF-8 bytes into the specified array, or only counts the
+     * resulting characters if the array is null
+     * @param src The UTF-8 encoded bytes
+     * @param i The index of the first byte to decode
+     * @param end The index after the last byte to decode
+     * @param dst The destination array, may be null
+     * @param n The index of the first character to store in dst
+     * @return The index after the last character stored in dst
+     */
+    private static int decodeRange(byte[] src, int i, int end, char[] dst,
+        int n)
+    {
+        while (i < end)
+        {
+            int b = src[i++];
+
+            if (b >= 0)
+            {
+                if (dst != null)
+                    dst[n] = (char) b;
+
+                n++;
+                continue;
+            }
+
+            int c, need, min;
+
+            if ((b & 0xE0) == 0xC0) // bit pattern 110xxxxx
+            {
+                c = b & 0x1F;
+                need = 1;
+                min = 0x80;
+            }
+            else if ((b & 0xF0) == 0xE0) // bit pattern 1110xxxx
+            {
+                c = b & 0x0F;
+                need = 2;
+                min = 0x800;
+            }
+            else if ((b & 0xF8) == 0xF0) // bit pattern 11110xxx
+            {
+                c = b & 0x07;
+                need = 3;
+                min = 0x10000;
+            }
+            else
+            {
+                // Stray continuation byte or invalid lead byte
+                c = -1;
+                need = 0;
+                min = 0;
+            }
+
+            while (need > 0 && i < end && (src[i] & 0xC0) == 0x80)
+            {
+                c = (c << 6) | (src[i++] & 0x3F);
+                need--;
+            }
+
+            if (need != 0 || c < min || c > 0x10FFFF
+                || (c >= 0xD800 && c <= 0xDFFF))
+            {
+                c = 0xFFFD;
+            }
+
+            if (c >= 0x10000)
+            {
+                if (dst != null)
+                {
+                    c -= 0x10000;
+                    dst[n] = (char) (0xD800 | (c >> 10));
+                    dst[n + 1] = (char) (0xDC00 | (c & 0x3FF));
+                }
+
+                n += 2;
+            }
+            else
+            {
+                if (dst != null)
+                    dst[n] = (char) c;
+
+                n++;
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Encodes characters as UTF-8 into the specified array, or only counts
+     * the resulting bytes if the array is null
+     * @param src The characters to encode
+     * @param i The index of the first character to encode
+     * @param end The index after the last character to encode
+     * @param dst The destination array, may be null
+     * @param n The index of the first byte to store in dst
+     * @return The index after the last byte stored in dst
+     */
+    private static int encodeRange(char[] src, int i, int end, byte[] dst,
+        int n)
+    {
+        while (i < end)
+        {
+            int c = src[i++];
+
+            if (c < 0x80)
+            {
+                if (dst != null)
+                    dst[n] = (byte) c;
+
+                n++;
+            }
+            else if (c < 0x800)
+            {
+                if (dst != null)
+                {
+                    dst[n] = (byte) (0xC0 | (c >> 6));
+                    dst[n + 1] = (byte) (0x80 | (c & 0x3F));
+                }
+
+                n += 2;
+            }
+            else if (c >= 0xD800 && c <= 0xDFFF)
+            {
+                if (c <= 0xDBFF && i < end
+                    && src[i] >= 0xDC00 && src[i] <= 0xDFFF)
+                {
+                    if (dst != null)
+                    {
+                        c = 0x10000 + ((c & 0x3FF) << 10) + (src[i] & 0x3FF);
+                        dst[n] = (byte) (0xF0 | (c >> 18));
+                        dst[n + 1] = (byte) (0x80 | ((c >> 12) & 0x3F));
+                        dst[n + 2] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        dst[n + 3] = (byte) (0x80 | (c & 0x3F));
+                    }
+
+                    i++;
+                    n += 4;
+                }
+                else
+                {
+                    if (dst != null)
+                        dst[n] = (byte) '?';
+
+                    n++;
+                }
+            }
+            else
+            {
+                if (dst != null)
+                {
+                    dst[n] = (byte) (0xE0 | (c >> 12));
+                    dst[n + 1] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    dst[n + 2] = (byte) (0x80 | (c & 0x3F));
+                }
+
+                n += 3;
+            }
+        }
+
+        return n;
+    }
+}
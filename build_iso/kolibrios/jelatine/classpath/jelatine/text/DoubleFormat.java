@@ -0,0 +1,704 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.text;
+
+/**
+ * Formatting of doubles and floats straight into character or byte arrays.
+ * The output follows {@link Double#toString(double)}: values from 10^-3 up
+ * to 10^7 in plain notation, the others as <i>d.ddd</i>E<i>n</i>, using the
+ * shortest decimal which reads back to the same value. The digits are found
+ * with the Ryu algorithm of Ulf Adams, using integer arithmetic only.
+ */
+public final class DoubleFormat
+{
+    /** Maximum number of characters of a formatted double */
+    public static final int MAX_DOUBLE_CHARS = 24;
+
+    /** Maximum number of characters of a formatted float */
+    public static final int MAX_FLOAT_CHARS = 15;
+
+    /** Number of bits of the inverse powers of five used for doubles */
+    private static final int POW5_INV_BITCOUNT = 125;
+
+    /** Number of bits of the powers of five used for doubles */
+    private static final int POW5_BITCOUNT = 125;
+
+    /** Number of bits of the inverse powers of five used for floats */
+    private static final int FLOAT_POW5_INV_BITCOUNT = POW5_INV_BITCOUNT - 64;
+
+    /** Number of bits of the powers of five used for floats */
+    private static final int FLOAT_POW5_BITCOUNT = POW5_BITCOUNT - 64;
+
+    /** Not instantiable */
+    private DoubleFormat()
+    {
+    }
+
+    /**
+     * Formats a double into a new string
+     * @param d The double
+     * @return The string representation of d
+     */
+    public static String toString(double d)
+    {
+        char[] buf = new char[MAX_DOUBLE_CHARS];
+
+        return new String(buf, 0, getChars(d, buf, 0));
+    }
+
+    /**
+     * Formats a float into a new string
+     * @param f The float
+     * @return The string representation of f
+     */
+    public static String toString(float f)
+    {
+        char[] buf = new char[MAX_FLOAT_CHARS];
+
+        return new String(buf, 0, getChars(f, buf, 0));
+    }
+
+    /**
+     * Formats a double into a character array. The array must have room for
+     * {@link #MAX_DOUBLE_CHARS} characters starting at <code>off</code>.
+     * @param d The double
+     * @param buf The destination array
+     * @param off The index where the first character is stored
+     * @return The index after the last character stored
+     */
+    public static int getChars(double d, char[] buf, int off)
+    {
+        return formatDouble(d, buf, null, off);
+    }
+
+    /**
+     * Formats a double into a byte array as ASCII characters. The array must
+     * have room for {@link #MAX_DOUBLE_CHARS} bytes starting at
+     * <code>off</code>.
+     * @param d The double
+     * @param buf The destination array
+     * @param off The index where the first byte is stored
+     * @return The index after the last byte stored
+     */
+    public static int getBytes(double d, byte[] buf, int off)
+    {
+        return formatDouble(d, null, buf, off);
+    }
+
+    /**
+     * Formats a float into a character array. The array must have room for
+     * {@link #MAX_FLOAT_CHARS} characters starting at <code>off</code>.
+     * @param f The float
+     * @param buf The destination array
+     * @param off The index where the first character is stored
+     * @return The index after the last character stored
+     */
+    public static int getChars(float f, char[] buf, int off)
+    {
+        return formatFloat(f, buf, null, off);
+    }
+
+    /**
+     * Formats a float into a byte array as ASCII characters. The array must
+     * have room for {@link #MAX_FLOAT_CHARS} bytes starting at
+     * <code>off</code>.
+     * @param f The float
+     * @param buf The destination array
+     * @param off The index where the first byte is stored
+     * @return The index after the last byte stored
+     */
+    public static int getBytes(float f, byte[] buf, int off)
+    {
+        return formatFloat(f, null, buf, off);
+    }
+
+    /**
+     * Finds the shortest decimal of a double and lays it out in whichever of
+     * <code>cbuf</code> and <code>bbuf</code> is not null
+     */
+    private static int formatDouble(double d, char[] cbuf, byte[] bbuf,
+                                    int off)
+    {
+        long bits = Double.doubleToLongBits(d);
+        boolean sign = bits < 0;
+        int ieeeExponent = (int) (bits >>> 52) & 0x7ff;
+        long ieeeMantissa = bits & 0xfffffffffffffL;
+
+        if (ieeeExponent == 0x7ff)
+            return special(ieeeMantissa != 0, sign, cbuf, bbuf, off);
+
+        if (ieeeExponent == 0 && ieeeMantissa == 0)
+            return layout(0, 0, sign, cbuf, bbuf, off);
+
+        int e2;
+        long m2;
+
+        if (ieeeExponent == 0)
+        {
+            e2 = 1 - 1023 - 52 - 2;
+            m2 = ieeeMantissa;
+        }
+        else
+        {
+            e2 = ieeeExponent - 1023 - 52 - 2;
+            m2 = (1L << 52) | ieeeMantissa;
+        }
+
+        boolean even = (m2 & 1) == 0;
+        long mv = 4 * m2;
+        int mmShift = (ieeeMantissa != 0 || ieeeExponent <= 1) ? 1 : 0;
+        long vr, vp, vm;
+        int e10;
+        boolean vmIsTrailingZeros = false;
+        boolean vrIsTrailingZeros = false;
+
+        // Compute the decimal interval of the values rounding to d
+        if (e2 >= 0)
+        {
+            int q = log10Pow2(e2) - ((e2 > 3) ? 1 : 0);
+            int i = -e2 + q + POW5_INV_BITCOUNT + pow5bits(q) - 1;
+            long hi = pow5InvHigh(q);
+            long lo = pow5InvLow(q);
+
+            e10 = q;
+            vr = mulShift64(mv, hi, lo, i);
+            vp = mulShift64(mv + 2, hi, lo, i);
+            vm = mulShift64(mv - 1 - mmShift, hi, lo, i);
+
+            if (q <= 21)
+            {
+                // Only one of mp, mv, and mm can be a multiple of 5, if any
+                if (mv % 5 == 0)
+                    vrIsTrailingZeros = multipleOfPowerOf5(mv, q);
+                else if (even)
+                    vmIsTrailingZeros = multipleOfPowerOf5(mv - 1 - mmShift, q);
+                else if (multipleOfPowerOf5(mv + 2, q))
+                    vp--;
+            }
+        }
+        else
+        {
+            int q = log10Pow5(-e2) - ((-e2 > 1) ? 1 : 0);
+            int i = -e2 - q;
+            int j = q - (pow5bits(i) - POW5_BITCOUNT);
+            long hi = pow5High(i);
+            long lo = pow5Low(i);
+
+            e10 = q + e2;
+            vr = mulShift64(mv, hi, lo, j);
+            vp = mulShift64(mv + 2, hi, lo, j);
+            vm = mulShift64(mv - 1 - mmShift, hi, lo, j);
+
+            if (q <= 1)
+            {
+                // mv has at least q trailing zero bits
+                vrIsTrailingZeros = true;
+
+                if (even)
+                    vmIsTrailingZeros = mmShift == 1;
+                else
+                    vp--;
+            }
+            else if (q < 63)
+            {
+                vrIsTrailingZeros = (mv & ((1L << q) - 1)) == 0;
+            }
+        }
+
+        // Remove digits while the interval still holds a shorter decimal
+        int removed = 0;
+        int lastRemovedDigit = 0;
+        long output;
+
+        if (vmIsTrailingZeros || vrIsTrailingZeros)
+        {
+            // General case, which happens rarely
+            while (vp / 10 > vm / 10)
+            {
+                vmIsTrailingZeros &= vm % 10 == 0;
+                vrIsTrailingZeros &= lastRemovedDigit == 0;
+                lastRemovedDigit = (int) (vr % 10);
+                vr /= 10;
+                vp /= 10;
+                vm /= 10;
+                removed++;
+            }
+
+            if (vmIsTrailingZeros)
+            {
+                while (vm % 10 == 0)
+                {
+                    vrIsTrailingZeros &= lastRemovedDigit == 0;
+                    lastRemovedDigit = (int) (vr % 10);
+                    vr /= 10;
+                    vp /= 10;
+                    vm /= 10;
+                    removed++;
+                }
+            }
+
+            // Round to even if the exact number is .....50..0
+            if (vrIsTrailingZeros && lastRemovedDigit == 5 && vr % 2 == 0)
+                lastRemovedDigit = 4;
+
+            output = vr;
+
+            if ((vr == vm && (!even || !vmIsTrailingZeros))
+                || lastRemovedDigit >= 5)
+            {
+                output++;
+            }
+        }
+        else
+        {
+            // Common case, two digits are removed at a time first
+            boolean roundUp = false;
+
+            if (vp / 100 > vm / 100)
+            {
+                roundUp = vr % 100 >= 50;
+                vr /= 100;
+                vp /= 100;
+                vm /= 100;
+                removed += 2;
+            }
+
+            while (vp / 10 > vm / 10)
+            {
+                roundUp = vr % 10 >= 5;
+                vr /= 10;
+                vp /= 10;
+                vm /= 10;
+                removed++;
+            }
+
+            output = vr;
+
+            if (vr == vm || roundUp)
+                output++;
+        }
+
+        return layout(output, e10 + removed, sign, cbuf, bbuf, off);
+    }
+
+    /**
+     * Finds the shortest decimal of a float and lays it out in whichever of
+     * <code>cbuf</code> and <code>bbuf</code> is not null
+     */
+    private static int formatFloat(float f, char[] cbuf, byte[] bbuf,
+                                   int off)
+    {
+        int bits = Float.floatToIntBits(f);
+        boolean sign = bits < 0;
+        int ieeeExponent = (bits >>> 23) & 0xff;
+        int ieeeMantissa = bits & 0x7fffff;
+
+        if (ieeeExponent == 0xff)
+            return special(ieeeMantissa != 0, sign, cbuf, bbuf, off);
+
+        if (ieeeExponent == 0 && ieeeMantissa == 0)
+            return layout(0, 0, sign, cbuf, bbuf, off);
+
+        int e2;
+        int m2;
+
+        if (ieeeExponent == 0)
+        {
+            e2 = 1 - 127 - 23 - 2;
+            m2 = ieeeMantissa;
+        }
+        else
+        {
+            e2 = ieeeExponent - 127 - 23 - 2;
+            m2 = (1 << 23) | ieeeMantissa;
+        }
+
+        boolean even = (m2 & 1) == 0;
+        int mv = 4 * m2;
+        int mp = 4 * m2 + 2;
+        int mmShift = (ieeeMantissa != 0 || ieeeExponent <= 1) ? 1 : 0;
+        int mm = 4 * m2 - 1 - mmShift;
+        int vr, vp, vm;
+        int e10;
+        boolean vmIsTrailingZeros = false;
+        boolean vrIsTrailingZeros = false;
+        int lastRemovedDigit = 0;
+
+        if (e2 >= 0)
+        {
+            int q = log10Pow2(e2);
+            int i = -e2 + q + FLOAT_POW5_INV_BITCOUNT + pow5bits(q) - 1;
+            long factor = pow5InvHigh(q) + 1;
+
+            e10 = q;
+            vr = mulShift32(mv, factor, i);
+            vp = mulShift32(mp, factor, i);
+            vm = mulShift32(mm, factor, i);
+
+            if (q != 0 && (vp - 1) / 10 <= vm / 10)
+            {
+                // The loop below may not run, the digit is needed anyway
+                int l = FLOAT_POW5_INV_BITCOUNT + pow5bits(q - 1) - 1;
+
+                lastRemovedDigit = mulShift32(mv, pow5InvHigh(q - 1) + 1,
+                                              -e2 + q - 1 + l) % 10;
+            }
+
+            if (q <= 9)
+            {
+                // Only one of mp, mv, and mm can be a multiple of 5, if any
+                if (mv % 5 == 0)
+                    vrIsTrailingZeros = multipleOfPowerOf5(mv, q);
+                else if (even)
+                    vmIsTrailingZeros = multipleOfPowerOf5(mm, q);
+                else if (multipleOfPowerOf5(mp, q))
+                    vp--;
+            }
+        }
+        else
+        {
+            int q = log10Pow5(-e2);
+            int i = -e2 - q;
+            int j = q - (pow5bits(i) - FLOAT_POW5_BITCOUNT);
+            long factor = pow5High(i);
+
+            e10 = q + e2;
+            vr = mulShift32(mv, factor, j);
+            vp = mulShift32(mp, factor, j);
+            vm = mulShift32(mm, factor, j);
+
+            if (q != 0 && (vp - 1) / 10 <= vm / 10)
+            {
+                j = q - 1 - (pow5bits(i + 1) - FLOAT_POW5_BITCOUNT);
+                lastRemovedDigit = mulShift32(mv, pow5High(i + 1), j) % 10;
+            }
+
+            if (q <= 1)
+            {
+                vrIsTrailingZeros = true;
+
+                if (even)
+                    vmIsTrailingZeros = mmShift == 1;
+                else
+                    vp--;
+            }
+            else if (q < 31)
+            {
+                vrIsTrailingZeros = (mv & ((1 << (q - 1)) - 1)) == 0;
+            }
+        }
+
+        int removed = 0;
+        int output;
+
+        if (vmIsTrailingZeros || vrIsTrailingZeros)
+        {
+            while (vp / 10 > vm / 10)
+            {
+                vmIsTrailingZeros &= vm % 10 == 0;
+                vrIsTrailingZeros &= lastRemovedDigit == 0;
+                lastRemovedDigit = vr % 10;
+                vr /= 10;
+                vp /= 10;
+                vm /= 10;
+                removed++;
+            }
+
+            if (vmIsTrailingZeros)
+            {
+                while (vm % 10 == 0)
+                {
+                    vrIsTrailingZeros &= lastRemovedDigit == 0;
+                    lastRemovedDigit = vr % 10;
+                    vr /= 10;
+                    vp /= 10;
+                    vm /= 10;
+                    removed++;
+                }
+            }
+
+            if (vrIsTrailingZeros && lastRemovedDigit == 5 && vr % 2 == 0)
+                lastRemovedDigit = 4;
+
+            output = vr;
+
+            if ((vr == vm && (!even || !vmIsTrailingZeros))
+                || lastRemovedDigit >= 5)
+            {
+                output++;
+            }
+        }
+        else
+        {
+            while (vp / 10 > vm / 10)
+            {
+                lastRemovedDigit = vr % 10;
+                vr /= 10;
+                vp /= 10;
+                vm /= 10;
+                removed++;
+            }
+
+            output = vr;
+
+            if (vr == vm || lastRemovedDigit >= 5)
+                output++;
+        }
+
+        return layout(output, e10 + removed, sign, cbuf, bbuf, off);
+    }
+
+    /**
+     * Lays out the decimal <code>output * 10^exp</code> in Java notation
+     * @return The index after the last character stored
+     */
+    private static int layout(long output, int exp, boolean sign,
+                              char[] cbuf, byte[] bbuf, int pos)
+    {
+        if (sign)
+            put(cbuf, bbuf, pos++, '-');
+
+        int olength = IntegerFormat.stringSize(output);
+        int e = exp + olength - 1;
+
+        if (e >= -3 && e < 7)
+        {
+            if (e < 0)
+            {
+                // 0.000ddd
+                put(cbuf, bbuf, pos++, '0');
+                put(cbuf, bbuf, pos++, '.');
+
+                for (int i = -1; i > e; i--)
+                    put(cbuf, bbuf, pos++, '0');
+
+                pos = putDigits(output, olength, olength, cbuf, bbuf, pos);
+            }
+            else if (olength > e + 1)
+            {
+                // ddd.ddd
+                pos = putDigits(output, olength, e + 1, cbuf, bbuf, pos);
+            }
+            else
+            {
+                // ddd000.0
+                pos = putDigits(output, olength, olength, cbuf, bbuf, pos);
+
+                for (int i = olength; i <= e; i++)
+                    put(cbuf, bbuf, pos++, '0');
+
+                put(cbuf, bbuf, pos++, '.');
+                put(cbuf, bbuf, pos++, '0');
+            }
+
+            return pos;
+        }
+
+        // d.dddEn
+        if (olength > 1)
+        {
+            pos = putDigits(output, olength, 1, cbuf, bbuf, pos);
+        }
+        else
+        {
+            put(cbuf, bbuf, pos++, (int) ('0' + output));
+            put(cbuf, bbuf, pos++, '.');
+            put(cbuf, bbuf, pos++, '0');
+        }
+
+        put(cbuf, bbuf, pos++, 'E');
+
+        if (cbuf != null)
+            return IntegerFormat.getChars(e, cbuf, pos);
+        else
+            return IntegerFormat.getBytes(e, bbuf, pos);
+    }
+
+    /**
+     * Stores the <code>n</code> digits of <code>v</code> with a decimal point
+     * after the first <code>point</code> digits, no point is stored if
+     * <code>point</code> equals <code>n</code>
+     * @return The index after the last character stored
+     */
+    private static int putDigits(long v, int n, int point, char[] cbuf,
+                                 byte[] bbuf, int pos)
+    {
+        int end = pos + n + ((point < n) ? 1 : 0);
+        int i = end;
+
+        for (int idx = n - 1; idx >= 0; idx--)
+        {
+            put(cbuf, bbuf, --i, (int) ('0' + v % 10));
+            v /= 10;
+
+            if (idx == point)
+                put(cbuf, bbuf, --i, '.');
+        }
+
+        return end;
+    }
+
+    /** Stores NaN or an infinity */
+    private static int special(boolean nan, boolean sign, char[] cbuf,
+                               byte[] bbuf, int pos)
+    {
+        String str = nan ? "NaN" : (sign ? "-Infinity" : "Infinity");
+        int len = str.length();
+
+        for (int i = 0; i < len; i++)
+            put(cbuf, bbuf, pos++, str.charAt(i));
+
+        return pos;
+    }
+
+    /** Stores one character in whichever array is not null */
+    private static void put(char[] cbuf, byte[] bbuf, int pos, int c)
+    {
+        if (cbuf != null)
+            cbuf[pos] = (char) c;
+        else
+            bbuf[pos] = (byte) c;
+    }
+
+    /** Returns ceil(log2(5^e)), or 1 for e == 0 */
+    private static int pow5bits(int e)
+    {
+        return ((e * 1217359) >>> 19) + 1;
+    }
+
+    /** Returns floor(log10(2^e)) */
+    private static int log10Pow2(int e)
+    {
+        return (e * 78913) >>> 18;
+    }
+
+    /** Returns floor(log10(5^e)) */
+    private static int log10Pow5(int e)
+    {
+        return (e * 732923) >>> 20;
+    }
+
+    /** Tells whether value is divisible by 5^p */
+    private static boolean multipleOfPowerOf5(long value, int p)
+    {
+        int count = 0;
+
+        while (value % 5 == 0)
+        {
+            value /= 5;
+            count++;
+        }
+
+        return count >= p;
+    }
+
+    /** High word of floor(5^i / 2^(bitlength(5^i) - 125)) */
+    private static long pow5High(int i)
+    {
+        return PowersOfFive.TABLE[2 * (i - PowersOfFive.MIN_EXPONENT)] >>> 3;
+    }
+
+    /** Low word of floor(5^i / 2^(bitlength(5^i) - 125)) */
+    private static long pow5Low(int i)
+    {
+        int index = 2 * (i - PowersOfFive.MIN_EXPONENT);
+
+        return (PowersOfFive.TABLE[index + 1] >>> 3)
+               | (PowersOfFive.TABLE[index] << 61);
+    }
+
+    /** High word of floor(2^(bitlength(5^q) - 1 + 125) / 5^q) + 1 */
+    private static long pow5InvHigh(int q)
+    {
+        if (q == 0)
+            return 1L << 61;
+
+        int index = 2 * (-q - PowersOfFive.MIN_EXPONENT);
+        long hi = PowersOfFive.TABLE[index];
+        long lo = PowersOfFive.TABLE[index + 1];
+
+        // The table is 2^3 times larger, rounded up for small q
+        if (q <= 27)
+        {
+            if (lo == 0)
+                hi--;
+
+            lo--;
+        }
+
+        lo = ((lo >>> 3) | (hi << 61)) + 1;
+        return (hi >>> 3) + ((lo == 0) ? 1 : 0);
+    }
+
+    /** Low word of floor(2^(bitlength(5^q) - 1 + 125) / 5^q) + 1 */
+    private static long pow5InvLow(int q)
+    {
+        if (q == 0)
+            return 1;
+
+        int index = 2 * (-q - PowersOfFive.MIN_EXPONENT);
+        long hi = PowersOfFive.TABLE[index];
+        long lo = PowersOfFive.TABLE[index + 1];
+
+        if (q <= 27)
+        {
+            if (lo == 0)
+                hi--;
+
+            lo--;
+        }
+
+        return ((lo >>> 3) | (hi << 61)) + 1;
+    }
+
+    /**
+     * Returns <code>(m * mul) >> j</code> where mul is a 128-bit value and
+     * 64 &lt; j &lt; 128
+     */
+    private static long mulShift64(long m, long mulHi, long mulLo, int j)
+    {
+        long high1 = PowersOfFive.multiplyHigh(m, mulHi);
+        long low1 = m * mulHi;
+        long high0 = PowersOfFive.multiplyHigh(m, mulLo);
+        long sum = high0 + low1;
+
+        if (PowersOfFive.lessThanUnsigned(sum, high0))
+            high1++;
+
+        int dist = j - 64;
+
+        return (high1 << (64 - dist)) | (sum >>> dist);
+    }
+
+    /**
+     * Returns <code>(m * factor) >> shift</code> where m is a 32-bit value,
+     * factor a 64-bit value and 32 &lt; shift
+     */
+    private static int mulShift32(int m, long factor, int shift)
+    {
+        long factorLo = factor & 0xffffffffL;
+        long factorHi = factor >>> 32;
+        long bits0 = m * factorLo;
+        long bits1 = m * factorHi;
+        long sum = (bits0 >>> 32) + bits1;
+
+        return (int) (sum >>> (shift - 32));
+    }
+}
@@ -0,0 +1,723 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.text;
+
+/**
+ * Parsing of doubles and floats straight from character or byte arrays,
+ * accepting the syntax of {@link Double#parseDouble(String)}. The result is
+ * always correctly rounded. Decimals of up to 19 significant digits are
+ * converted with the Eisel-Lemire algorithm using integer arithmetic only,
+ * longer ones fall back to exact big decimal arithmetic when the first 19
+ * digits are not enough to decide the rounding.
+ */
+public final class DoubleParser
+{
+    /** Most significant digits kept in a long */
+    private static final int MAX_FAST_DIGITS = 19;
+
+    /** Not instantiable */
+    private DoubleParser()
+    {
+    }
+
+    /**
+     * Parses a double from a range of a character array. Leading and trailing
+     * characters up to and including the space are ignored.
+     * @param buf The characters
+     * @param off The index of the first character
+     * @param len The number of characters
+     * @return The double value
+     * @throws NumberFormatException if the characters are not a number
+     */
+    public static double parseDouble(char[] buf, int off, int len)
+    {
+        return Double.longBitsToDouble(parse(buf, null, off, len, false));
+    }
+
+    /**
+     * Parses a double from a range of a byte array holding ASCII characters.
+     * Leading and trailing bytes up to and including the space are ignored.
+     * @param buf The bytes
+     * @param off The index of the first byte
+     * @param len The number of bytes
+     * @return The double value
+     * @throws NumberFormatException if the bytes are not a number
+     */
+    public static double parseDouble(byte[] buf, int off, int len)
+    {
+        return Double.longBitsToDouble(parse(null, buf, off, len, false));
+    }
+
+    /**
+     * Parses a float from a range of a character array. Leading and trailing
+     * characters up to and including the space are ignored.
+     * @param buf The characters
+     * @param off The index of the first character
+     * @param len The number of characters
+     * @return The float value
+     * @throws NumberFormatException if the characters are not a number
+     */
+    public static float parseFloat(char[] buf, int off, int len)
+    {
+        return Float.intBitsToFloat((int) parse(buf, null, off, len, true));
+    }
+
+    /**
+     * Parses a float from a range of a byte array holding ASCII characters.
+     * Leading and trailing bytes up to and including the space are ignored.
+     * @param buf The bytes
+     * @param off The index of the first byte
+     * @param len The number of bytes
+     * @return The float value
+     * @throws NumberFormatException if the bytes are not a number
+     */
+    public static float parseFloat(byte[] buf, int off, int len)
+    {
+        return Float.intBitsToFloat((int) parse(null, buf, off, len, true));
+    }
+
+    /**
+     * Parses a number from whichever of <code>cbuf</code> and
+     * <code>bbuf</code> is not null
+     * @return The bits of the double, or of the float in the low word
+     */
+    private static long parse(char[] cbuf, byte[] bbuf, int off, int len,
+                              boolean isFloat)
+    {
+        int end = off + len;
+
+        if (off < 0 || len < 0 || end > ((cbuf != null) ? cbuf.length
+                                                        : bbuf.length))
+        {
+            throw new IndexOutOfBoundsException();
+        }
+
+        while (off < end && at(cbuf, bbuf, off) <= ' ')
+            off++;
+
+        while (end > off && at(cbuf, bbuf, end - 1) <= ' ')
+            end--;
+
+        if (off == end)
+            throw new NumberFormatException();
+
+        int mantBits = isFloat ? 23 : 52;
+        int expBits = isFloat ? 8 : 11;
+        boolean negative = false;
+        int c = at(cbuf, bbuf, off);
+
+        if (c == '-' || c == '+')
+        {
+            negative = c == '-';
+            off++;
+        }
+
+        long signBit = negative ? 1L << (mantBits + expBits) : 0;
+        long infinity = ((1L << expBits) - 1) << mantBits;
+
+        if (matches(cbuf, bbuf, off, end, "NaN"))
+            return infinity | (1L << (mantBits - 1));
+        else if (matches(cbuf, bbuf, off, end, "Infinity"))
+            return infinity | signBit;
+
+        // Keep up to 19 significant digits, note whether others are dropped
+        int start = off;
+        long w = 0;
+        int nd = 0;
+        int exp10 = 0;
+        boolean truncated = false;
+        boolean digits = false;
+        boolean dot = false;
+        int i;
+
+        for (i = off; i < end; i++)
+        {
+            c = at(cbuf, bbuf, i);
+
+            if (c == '.' && !dot)
+            {
+                dot = true;
+                continue;
+            }
+            else if (c < '0' || c > '9')
+            {
+                break;
+            }
+
+            digits = true;
+
+            if (nd == 0 && c == '0')
+            {
+                if (dot)
+                    exp10--;
+            }
+            else
+            {
+                if (nd < MAX_FAST_DIGITS)
+                {
+                    w = w * 10 + (c - '0');
+
+                    if (dot)
+                        exp10--;
+                }
+                else
+                {
+                    if (!dot)
+                        exp10++;
+
+                    if (c != '0')
+                        truncated = true;
+                }
+
+                nd++;
+            }
+        }
+
+        if (!digits)
+            throw new NumberFormatException();
+
+        int mantEnd = i;
+        int exponent = 0;
+
+        if (i < end && (at(cbuf, bbuf, i) | 0x20) == 'e')
+        {
+            boolean negExp = false;
+
+            i++;
+
+            if (i < end)
+            {
+                c = at(cbuf, bbuf, i);
+
+                if (c == '-' || c == '+')
+                {
+                    negExp = c == '-';
+                    i++;
+                }
+            }
+
+            int expStart = i;
+
+            for ( ; i < end; i++)
+            {
+                c = at(cbuf, bbuf, i);
+
+                if (c < '0' || c > '9')
+                    break;
+
+                // Large enough to overflow or underflow any input
+                if (exponent < 100000)
+                    exponent = exponent * 10 + (c - '0');
+            }
+
+            if (i == expStart)
+                throw new NumberFormatException();
+
+            if (negExp)
+                exponent = -exponent;
+        }
+
+        // The float/double specifier
+        if (i < end)
+        {
+            c = at(cbuf, bbuf, i) | 0x20;
+
+            if (c == 'f' || c == 'd')
+                i++;
+        }
+
+        if (i != end)
+            throw new NumberFormatException();
+
+        if (w == 0)
+            return signBit;
+
+        long bits = eiselLemire(exp10 + exponent, w, isFloat);
+
+        // The dropped digits matter only if w + 1 rounds differently
+        if (truncated && bits != eiselLemire(exp10 + exponent, w + 1, isFloat))
+        {
+            Decimal dec = new Decimal();
+
+            dec.set(cbuf, bbuf, start, mantEnd, exponent);
+            bits = dec.floatBits(mantBits, expBits);
+        }
+
+        return bits | signBit;
+    }
+
+    /**
+     * Converts <code>w * 10^q</code> to the nearest double or float,
+     * w being an unsigned non-zero long
+     * @return The bits of the result without the sign
+     */
+    private static long eiselLemire(int q, long w, boolean isFloat)
+    {
+        int mantBits = isFloat ? 23 : 52;
+        int minExponent = isFloat ? -127 : -1023;
+        int infinitePower = isFloat ? 0xff : 0x7ff;
+
+        if (q < (isFloat ? -64 : PowersOfFive.MIN_EXPONENT))
+            return 0;
+        else if (q > (isFloat ? 38 : 308))
+            return (long) infinitePower << mantBits;
+
+        int lz = leadingZeros(w);
+
+        w <<= lz;
+
+        // Multiply by the 128-bit power of five, the low word is needed only
+        // if the high word could be off in the bits kept
+        int index = 2 * (q - PowersOfFive.MIN_EXPONENT);
+        long hi = PowersOfFive.multiplyHigh(w, PowersOfFive.TABLE[index]);
+        long lo = w * PowersOfFive.TABLE[index];
+        long precisionMask = -1L >>> (mantBits + 3);
+
+        if ((hi & precisionMask) == precisionMask)
+        {
+            long second = PowersOfFive.multiplyHigh(w,
+                              PowersOfFive.TABLE[index + 1]);
+
+            lo += second;
+
+            if (PowersOfFive.lessThanUnsigned(lo, second))
+                hi++;
+        }
+
+        int upperbit = (int) (hi >>> 63);
+        int shift = upperbit + 64 - mantBits - 3;
+        long mantissa = hi >>> shift;
+        int power2 = (((152170 + 65536) * q) >> 16) + 63 + upperbit - lz
+                     - minExponent;
+
+        if (power2 <= 0)
+        {
+            // Subnormal, or zero if more than 64 bits below the minimum
+            if (-power2 + 1 >= 64)
+                return 0;
+
+            mantissa >>>= -power2 + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            power2 = (mantissa < (1L << mantBits)) ? 0 : 1;
+            return mantissa | ((long) power2 << mantBits);
+        }
+
+        // Halfway cases round down to even, they only happen for small q
+        if ((lo == 0 || lo == 1) && (mantissa & 3) == 1
+            && q >= (isFloat ? -17 : -4) && q <= (isFloat ? 10 : 23)
+            && (mantissa << shift) == hi)
+        {
+            mantissa &= ~1L;
+        }
+
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+
+        if (mantissa >= (2L << mantBits))
+        {
+            mantissa = 1L << mantBits;
+            power2++;
+        }
+
+        mantissa &= ~(1L << mantBits);
+
+        if (power2 >= infinitePower)
+            return (long) infinitePower << mantBits;
+
+        return mantissa | ((long) power2 << mantBits);
+    }
+
+    /** Returns the number of leading zero bits of a long */
+    private static int leadingZeros(long v)
+    {
+        int n = 0;
+
+        if ((v >>> 32) == 0)
+        {
+            n += 32;
+            v <<= 32;
+        }
+
+        if ((v >>> 48) == 0)
+        {
+            n += 16;
+            v <<= 16;
+        }
+
+        if ((v >>> 56) == 0)
+        {
+            n += 8;
+            v <<= 8;
+        }
+
+        if ((v >>> 60) == 0)
+        {
+            n += 4;
+            v <<= 4;
+        }
+
+        if ((v >>> 62) == 0)
+        {
+            n += 2;
+            v <<= 2;
+        }
+
+        if ((v >>> 63) == 0)
+            n++;
+
+        return n;
+    }
+
+    /** Tells whether a range holds exactly the specified string */
+    private static boolean matches(char[] cbuf, byte[] bbuf, int off,
+                                   int end, String str)
+    {
+        int len = str.length();
+
+        if (end - off != len)
+            return false;
+
+        for (int i = 0; i < len; i++)
+        {
+            if (at(cbuf, bbuf, off + i) != str.charAt(i))
+                return false;
+        }
+
+        return true;
+    }
+
+    /** Reads one character from whichever array is not null */
+    private static int at(char[] cbuf, byte[] bbuf, int i)
+    {
+        return (cbuf != null) ? cbuf[i] : (bbuf[i] & 0xff);
+    }
+
+    /**
+     * Arbitrary precision decimal used when the fast path cannot decide the
+     * rounding. The number is shifted by powers of two until its binary
+     * mantissa can be read off, as done by the Go standard library.
+     */
+    private static final class Decimal
+    {
+        /** Maximum number of digits kept, beyond it only the fact is noted */
+        private static final int MAX_DIGITS = 800;
+
+        /** Largest shift done in one step, keeps the carries within a long */
+        private static final int MAX_SHIFT = 59;
+
+        /** Binary shifts scaling numbers of 1 to 8 decimal digits */
+        private static final int[] POWTAB = { 1, 3, 6, 9, 13, 16, 19, 23, 26 };
+
+        /** Digits, most significant first, with room for a left shift */
+        private final byte[] d = new byte[MAX_DIGITS + 21];
+
+        /** Number of digits used */
+        private int nd;
+
+        /** Position of the decimal point */
+        private int dp;
+
+        /** True if non-zero digits were discarded beyond d[nd - 1] */
+        private boolean trunc;
+
+        /** Reads the mantissa digits and adds the decimal exponent */
+        void set(char[] cbuf, byte[] bbuf, int start, int end, int exponent)
+        {
+            boolean dot = false;
+
+            for (int i = start; i < end; i++)
+            {
+                int c = at(cbuf, bbuf, i);
+
+                if (c == '.')
+                {
+                    dot = true;
+                    continue;
+                }
+
+                if (nd == 0 && c == '0')
+                {
+                    if (dot)
+                        dp--;
+
+                    continue;
+                }
+
+                if (!dot)
+                    dp++;
+
+                if (nd < MAX_DIGITS)
+                    d[nd++] = (byte) (c - '0');
+                else if (c != '0')
+                    trunc = true;
+            }
+
+            dp += exponent;
+            trim();
+        }
+
+        /** Converts the decimal to the bits of a double or a float */
+        long floatBits(int mantBits, int expBits)
+        {
+            int bias = -(1 << (expBits - 1)) + 1;
+            int exp = 0;
+            long mant = 0;
+
+            if (nd == 0)
+                return 0;
+            else if (dp > 310)
+                return ((1L << expBits) - 1) << mantBits;
+            else if (dp < -330)
+                return 0;
+
+            // Scale by powers of two until in the range [0.5, 1)
+            while (dp > 0)
+            {
+                int n = (dp >= POWTAB.length) ? 27 : POWTAB[dp];
+
+                shift(-n);
+                exp += n;
+            }
+
+            while (dp < 0 || (dp == 0 && d[0] < 5))
+            {
+                int n = (-dp >= POWTAB.length) ? 27 : POWTAB[-dp];
+
+                shift(n);
+                exp -= n;
+            }
+
+            // The range [0.5, 1) is [1, 2) with one less in the exponent
+            exp--;
+
+            // Denormalize if below the minimum exponent
+            if (exp < bias + 1)
+            {
+                int n = bias + 1 - exp;
+
+                shift(-n);
+                exp += n;
+            }
+
+            if (exp - bias >= (1 << expBits) - 1)
+                return ((1L << expBits) - 1) << mantBits;
+
+            // Extract the mantissa bits, rounding may add one more
+            shift(1 + mantBits);
+            mant = roundedInteger();
+
+            if (mant == (2L << mantBits))
+            {
+                mant >>= 1;
+                exp++;
+
+                if (exp - bias >= (1 << expBits) - 1)
+                    return ((1L << expBits) - 1) << mantBits;
+            }
+
+            if ((mant & (1L << mantBits)) == 0)
+                exp = bias;
+
+            return (mant & ((1L << mantBits) - 1))
+                   | ((long) ((exp - bias) & ((1 << expBits) - 1)) << mantBits);
+        }
+
+        /** Multiplies by 2^k, divides if k is negative */
+        private void shift(int k)
+        {
+            if (nd == 0)
+                return;
+
+            if (k > 0)
+            {
+                for ( ; k > MAX_SHIFT; k -= MAX_SHIFT)
+                    leftShift(MAX_SHIFT);
+
+                leftShift(k);
+            }
+            else if (k < 0)
+            {
+                for ( ; k < -MAX_SHIFT; k += MAX_SHIFT)
+                    rightShift(MAX_SHIFT);
+
+                rightShift(-k);
+            }
+        }
+
+        /** Divides by 2^k */
+        private void rightShift(int k)
+        {
+            int r = 0;
+            int w = 0;
+            long n = 0;
+
+            // Pick up enough leading digits to cover the first shift
+            for ( ; (n >>> k) == 0; r++)
+            {
+                if (r >= nd)
+                {
+                    if (n == 0)
+                    {
+                        nd = 0;
+                        return;
+                    }
+
+                    while ((n >>> k) == 0)
+                    {
+                        n *= 10;
+                        r++;
+                    }
+
+                    break;
+                }
+
+                n = n * 10 + d[r];
+            }
+
+            dp -= r - 1;
+
+            long mask = (1L << k) - 1;
+
+            // Pick up a digit, put down a digit
+            for ( ; r < nd; r++)
+            {
+                long dig = n >>> k;
+
+                n &= mask;
+                d[w++] = (byte) dig;
+                n = n * 10 + d[r];
+            }
+
+            // Put down the extra digits
+            while (n > 0)
+            {
+                long dig = n >>> k;
+
+                n &= mask;
+
+                if (w < MAX_DIGITS)
+                    d[w++] = (byte) dig;
+                else if (dig > 0)
+                    trunc = true;
+
+                n *= 10;
+            }
+
+            nd = w;
+            trim();
+        }
+
+        /** Multiplies by 2^k */
+        private void leftShift(int k)
+        {
+            // Write the result from the end of the room left for new digits
+            int top = nd + (k * 1233 >> 12) + 2;
+            int w = top;
+            long n = 0;
+
+            for (int r = nd - 1; r >= 0; r--)
+            {
+                n += (long) d[r] << k;
+
+                long quo = n / 10;
+
+                d[--w] = (byte) (n - 10 * quo);
+                n = quo;
+            }
+
+            while (n > 0)
+            {
+                long quo = n / 10;
+
+                d[--w] = (byte) (n - 10 * quo);
+                n = quo;
+            }
+
+            int len = top - w;
+
+            System.arraycopy(d, w, d, 0, len);
+            dp += len - nd;
+            nd = len;
+
+            if (nd > MAX_DIGITS)
+            {
+                for (int i = MAX_DIGITS; i < nd; i++)
+                {
+                    if (d[i] != 0)
+                        trunc = true;
+                }
+
+                nd = MAX_DIGITS;
+            }
+
+            trim();
+        }
+
+        /** Returns the integer part, rounded to nearest even */
+        private long roundedInteger()
+        {
+            if (dp > 20)
+                return -1L;
+
+            int i;
+            long n = 0;
+
+            for (i = 0; i < dp && i < nd; i++)
+                n = n * 10 + d[i];
+
+            for ( ; i < dp; i++)
+                n *= 10;
+
+            if (shouldRoundUp(dp))
+                n++;
+
+            return n;
+        }
+
+        /** Tells whether rounding at digit nd rounds up */
+        private boolean shouldRoundUp(int n)
+        {
+            if (n < 0 || n >= nd)
+                return false;
+
+            // Exactly halfway, round to even unless digits were discarded
+            if (d[n] == 5 && n + 1 == nd)
+            {
+                if (trunc)
+                    return true;
+
+                return n > 0 && (d[n - 1] % 2) == 1;
+            }
+
+            return d[n] >= 5;
+        }
+
+        /** Removes trailing zeros */
+        private void trim()
+        {
+            while (nd > 0 && d[nd - 1] == 0)
+                nd--;
+
+            if (nd == 0)
+                dp = 0;
+        }
+    }
+}
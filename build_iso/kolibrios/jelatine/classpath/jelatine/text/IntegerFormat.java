@@ -0,0 +1,261 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.text;
+
+/**
+ * Decimal formatting of integers straight into character or byte arrays,
+ * without creating temporary strings. Numbers are formatted as by
+ * {@link Integer#toString(int)} and {@link Long#toString(long)}, two digits
+ * per division using a lookup table. Bytes are ASCII digits which are valid
+ * in every supported encoding.
+ */
+public final class IntegerFormat
+{
+    /** Tens digit of the numbers 0 to 99 */
+    private static final char[] TENS = new char[100];
+
+    /** Units digit of the numbers 0 to 99 */
+    private static final char[] ONES = new char[100];
+
+    static
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            TENS[i] = (char) ('0' + i / 10);
+            ONES[i] = (char) ('0' + i % 10);
+        }
+    }
+
+    /** Not instantiable */
+    private IntegerFormat()
+    {
+    }
+
+    /**
+     * Returns the number of characters needed to format an integer
+     * @param i The integer
+     * @return The number of characters including the sign
+     */
+    public static int stringSize(int i)
+    {
+        int sign = 0;
+
+        // Work on the negative value so that MIN_VALUE needs no special case
+        if (i < 0)
+            sign = 1;
+        else
+            i = -i;
+
+        int p = -10;
+
+        for (int size = 1; size < 10; size++)
+        {
+            if (i > p)
+                return size + sign;
+
+            p *= 10;
+        }
+
+        return 10 + sign;
+    }
+
+    /**
+     * Returns the number of characters needed to format a long integer
+     * @param l The long integer
+     * @return The number of characters including the sign
+     */
+    public static int stringSize(long l)
+    {
+        int sign = 0;
+
+        if (l < 0)
+            sign = 1;
+        else
+            l = -l;
+
+        long p = -10;
+
+        for (int size = 1; size < 19; size++)
+        {
+            if (l > p)
+                return size + sign;
+
+            p *= 10;
+        }
+
+        return 19 + sign;
+    }
+
+    /**
+     * Formats an integer into a character array. The array must have room
+     * for {@link #stringSize(int)} characters starting at <code>off</code>.
+     * @param i The integer
+     * @param buf The destination array
+     * @param off The index where the first character is stored
+     * @return The index after the last character stored
+     */
+    public static int getChars(int i, char[] buf, int off)
+    {
+        int end = off + stringSize(i);
+
+        if (i < 0)
+            buf[off] = '-';
+        else
+            i = -i;
+
+        putChars(i, buf, end);
+        return end;
+    }
+
+    /**
+     * Formats a long integer into a character array. The array must have
+     * room for {@link #stringSize(long)} characters starting at
+     * <code>off</code>.
+     * @param l The long integer
+     * @param buf The destination array
+     * @param off The index where the first character is stored
+     * @return The index after the last character stored
+     */
+    public static int getChars(long l, char[] buf, int off)
+    {
+        int end = off + stringSize(l);
+        int pos = end;
+
+        if (l < 0)
+            buf[off] = '-';
+        else
+            l = -l;
+
+        // Use long divisions only until the value fits in an int
+        while (l < Integer.MIN_VALUE)
+        {
+            long q = l / 100;
+            int r = (int) (q * 100 - l);
+
+            l = q;
+            buf[--pos] = ONES[r];
+            buf[--pos] = TENS[r];
+        }
+
+        putChars((int) l, buf, pos);
+        return end;
+    }
+
+    /**
+     * Formats an integer into a byte array as ASCII digits. The array must
+     * have room for {@link #stringSize(int)} bytes starting at
+     * <code>off</code>.
+     * @param i The integer
+     * @param buf The destination array
+     * @param off The index where the first byte is stored
+     * @return The index after the last byte stored
+     */
+    public static int getBytes(int i, byte[] buf, int off)
+    {
+        int end = off + stringSize(i);
+
+        if (i < 0)
+            buf[off] = (byte) '-';
+        else
+            i = -i;
+
+        putBytes(i, buf, end);
+        return end;
+    }
+
+    /**
+     * Formats a long integer into a byte array as ASCII digits. The array
+     * must have room for {@link #stringSize(long)} bytes starting at
+     * <code>off</code>.
+     * @param l The long integer
+     * @param buf The destination array
+     * @param off The index where the first byte is stored
+     * @return The index after the last byte stored
+     */
+    public static int getBytes(long l, byte[] buf, int off)
+    {
+        int end = off + stringSize(l);
+        int pos = end;
+
+        if (l < 0)
+            buf[off] = (byte) '-';
+        else
+            l = -l;
+
+        while (l < Integer.MIN_VALUE)
+        {
+            long q = l / 100;
+            int r = (int) (q * 100 - l);
+
+            l = q;
+            buf[--pos] = (byte) ONES[r];
+            buf[--pos] = (byte) TENS[r];
+        }
+
+        putBytes((int) l, buf, pos);
+        return end;
+    }
+
+    /**
+     * Stores the digits of a non-positive integer backwards, the last digit
+     * going just before <code>pos</code>
+     */
+    private static void putChars(int i, char[] buf, int pos)
+    {
+        while (i <= -100)
+        {
+            int q = i / 100;
+            int r = q * 100 - i;
+
+            i = q;
+            buf[--pos] = ONES[r];
+            buf[--pos] = TENS[r];
+        }
+
+        i = -i;
+        buf[--pos] = ONES[i];
+
+        if (i >= 10)
+            buf[--pos] = TENS[i];
+    }
+
+    /**
+     * Stores the digits of a non-positive integer backwards as ASCII bytes,
+     * the last digit going just before <code>pos</code>
+     */
+    private static void putBytes(int i, byte[] buf, int pos)
+    {
+        while (i <= -100)
+        {
+            int q = i / 100;
+            int r = q * 100 - i;
+
+            i = q;
+            buf[--pos] = (byte) ONES[r];
+            buf[--pos] = (byte) TENS[r];
+        }
+
+        i = -i;
+        buf[--pos] = (byte) ONES[i];
+
+        if (i >= 10)
+            buf[--pos] = (byte) TENS[i];
+    }
+}
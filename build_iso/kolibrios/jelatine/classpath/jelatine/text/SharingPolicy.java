@@ -0,0 +1,111 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.text;
+
+/**
+ * Decides when a new string may share the character array of the string or
+ * string buffer it is cut from instead of copying its characters. Sharing
+ * saves a copy but keeps the whole array alive, so a small token cut from a
+ * large buffer would pin the entire buffer. A slice is shared only if it
+ * covers at least a minimum percentage of the array and leaves no more than
+ * a maximum number of unused characters.
+ *
+ * A string which shares a larger array can be detached from it with
+ * <code>new String(str)</code>, which always copies just its characters.
+ */
+public final class SharingPolicy
+{
+    /** Default maximum number of unused characters a shared slice pins */
+    public static final int DEFAULT_MAX_WASTE = 4096;
+
+    /** Default minimum percentage of the array a shared slice covers */
+    public static final int DEFAULT_MIN_PERCENT = 25;
+
+    /** Maximum number of unused characters a shared slice may pin */
+    private static int maxWaste = DEFAULT_MAX_WASTE;
+
+    /** Minimum percentage of the array a shared slice must cover */
+    private static int minPercent = DEFAULT_MIN_PERCENT;
+
+    /** Not instantiable */
+    private SharingPolicy()
+    {
+    }
+
+    /**
+     * Sets the absolute threshold, zero disables sharing of partial arrays
+     * @param chars The maximum number of unused characters a shared slice
+     * may keep alive
+     * @throws IllegalArgumentException if chars is negative
+     */
+    public static void setMaxWaste(int chars)
+    {
+        if (chars < 0)
+            throw new IllegalArgumentException();
+
+        maxWaste = chars;
+    }
+
+    /**
+     * Returns the absolute threshold
+     * @return The maximum number of unused characters a shared slice may
+     * keep alive
+     */
+    public static int getMaxWaste()
+    {
+        return maxWaste;
+    }
+
+    /**
+     * Sets the relative threshold
+     * @param percent The minimum percentage of the array a shared slice must
+     * cover, between 0 and 100
+     * @throws IllegalArgumentException if percent is out of range
+     */
+    public static void setMinPercent(int percent)
+    {
+        if (percent < 0 || percent > 100)
+            throw new IllegalArgumentException();
+
+        minPercent = percent;
+    }
+
+    /**
+     * Returns the relative threshold
+     * @return The minimum percentage of the array a shared slice must cover
+     */
+    public static int getMinPercent()
+    {
+        return minPercent;
+    }
+
+    /**
+     * Tells whether a slice may share its backing array
+     * @param len The number of characters in the slice
+     * @param capacity The length of the backing array
+     * @return true if the slice may share the array, false if it should be
+     * copied
+     */
+    public static boolean share(int len, int capacity)
+    {
+        return (capacity - len <= maxWaste)
+               && ((long) len * 100 >= (long) capacity * minPercent);
+    }
+}
@@ -0,0 +1,558 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.text;
+
+/**
+ * Unsynchronized counterpart of {@link StringBuffer}. It provides the same
+ * operations but takes no locks, so an instance must be confined to a single
+ * thread or protected by its user. Numbers are formatted directly into the
+ * builder's own array without creating temporary strings.
+ *
+ * Unlike StringBuffer the array is never shared with the strings created by
+ * {@link #toString()}, which always copy, so a builder can be cleared with
+ * <code>setLength(0)</code> and reused without reallocating.
+ */
+public final class StringBuilder
+{
+    /** The default capacity of a builder */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Number of characters in the builder */
+    private int count;
+
+    /** The characters, valid up to <code>count</code> */
+    private char[] value;
+
+    /**
+     * Creates an empty builder with the default capacity of 16 characters
+     */
+    public StringBuilder()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty builder with the specified capacity
+     * @param capacity The initial capacity
+     * @throws NegativeArraySizeException if capacity is negative
+     */
+    public StringBuilder(int capacity)
+    {
+        value = new char[capacity];
+    }
+
+    /**
+     * Creates a builder holding the characters of a string, with room for 16
+     * more characters
+     * @param str The initial contents
+     * @throws NullPointerException if str is null
+     */
+    public StringBuilder(String str)
+    {
+        count = str.length();
+        value = new char[count + DEFAULT_CAPACITY];
+        str.getChars(0, count, value, 0);
+    }
+
+    /**
+     * Returns the number of characters in the builder
+     * @return The length of the builder
+     */
+    public int length()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the number of characters the builder can hold before growing
+     * @return The capacity of the builder
+     */
+    public int capacity()
+    {
+        return value.length;
+    }
+
+    /**
+     * Makes sure the builder can hold at least the specified number of
+     * characters. The builder is grown to the larger of
+     * <code>minimumCapacity</code> and <code>capacity() * 2 + 2</code>.
+     * @param minimumCapacity The minimum capacity
+     */
+    public void ensureCapacity(int minimumCapacity)
+    {
+        if (minimumCapacity > value.length)
+        {
+            int max = value.length * 2 + 2;
+            char[] nb = new char[minimumCapacity < max ? max
+                                                       : minimumCapacity];
+
+            System.arraycopy(value, 0, nb, 0, count);
+            value = nb;
+        }
+    }
+
+    /**
+     * Sets the length of the builder, new characters are set to 0
+     * @param newLength The new length
+     * @throws StringIndexOutOfBoundsException if newLength is negative
+     */
+    public void setLength(int newLength)
+    {
+        if (newLength < 0)
+            throw new StringIndexOutOfBoundsException();
+
+        ensureCapacity(newLength);
+
+        while (count < newLength)
+            value[count++] = '\0';
+
+        count = newLength;
+    }
+
+    /**
+     * Returns the character at the specified index
+     * @param index The index of the character
+     * @return The character
+     * @throws StringIndexOutOfBoundsException if index is out of range
+     */
+    public char charAt(int index)
+    {
+        if (index < 0 || index >= count)
+            throw new StringIndexOutOfBoundsException();
+
+        return value[index];
+    }
+
+    /**
+     * Sets the character at the specified index
+     * @param index The index of the character
+     * @param ch The new character
+     * @throws StringIndexOutOfBoundsException if index is out of range
+     */
+    public void setCharAt(int index, char ch)
+    {
+        if (index < 0 || index >= count)
+            throw new StringIndexOutOfBoundsException();
+
+        value[index] = ch;
+    }
+
+    /**
+     * Copies characters of the builder into an array
+     * @param srcOffset The index of the first character to copy
+     * @param srcEnd The index after the last character to copy
+     * @param dst The destination array
+     * @param dstOffset The index where the first character is stored
+     * @throws StringIndexOutOfBoundsException if the source range is invalid
+     */
+    public void getChars(int srcOffset, int srcEnd, char[] dst, int dstOffset)
+    {
+        if (srcOffset < 0 || srcEnd > count || srcEnd < srcOffset)
+            throw new StringIndexOutOfBoundsException();
+
+        System.arraycopy(value, srcOffset, dst, dstOffset, srcEnd - srcOffset);
+    }
+
+    /**
+     * Appends the string representation of an object, or "null"
+     * @param obj The object
+     * @return This builder
+     */
+    public StringBuilder append(Object obj)
+    {
+        return append(obj == null ? "null" : obj.toString());
+    }
+
+    /**
+     * Appends a string, or "null"
+     * @param str The string
+     * @return This builder
+     */
+    public StringBuilder append(String str)
+    {
+        if (str == null)
+            str = "null";
+
+        int len = str.length();
+
+        ensureCapacity(count + len);
+        str.getChars(0, len, value, count);
+        count += len;
+        return this;
+    }
+
+    /**
+     * Appends the contents of a string buffer, or "null"
+     * @param sb The string buffer
+     * @return This builder
+     */
+    public StringBuilder append(StringBuffer sb)
+    {
+        if (sb == null)
+            return append("null");
+
+        synchronized (sb)
+        {
+            int len = sb.length();
+
+            ensureCapacity(count + len);
+            sb.getChars(0, len, value, count);
+            count += len;
+        }
+
+        return this;
+    }
+
+    /**
+     * Appends the contents of another builder, or "null"
+     * @param sb The builder
+     * @return This builder
+     */
+    public StringBuilder append(StringBuilder sb)
+    {
+        if (sb == null)
+            return append("null");
+
+        int len = sb.count;
+
+        ensureCapacity(count + len);
+        System.arraycopy(sb.value, 0, value, count, len);
+        count += len;
+        return this;
+    }
+
+    /**
+     * Appends an array of characters
+     * @param data The characters
+     * @return This builder
+     * @throws NullPointerException if data is null
+     */
+    public StringBuilder append(char[] data)
+    {
+        return append(data, 0, data.length);
+    }
+
+    /**
+     * Appends part of an array of characters
+     * @param data The characters
+     * @param offset The index of the first character to append
+     * @param len The number of characters to append
+     * @return This builder
+     * @throws NullPointerException if data is null
+     * @throws StringIndexOutOfBoundsException if offset or len is invalid
+     */
+    public StringBuilder append(char[] data, int offset, int len)
+    {
+        if (offset < 0 || len < 0 || offset > data.length - len)
+            throw new StringIndexOutOfBoundsException();
+
+        ensureCapacity(count + len);
+        System.arraycopy(data, offset, value, count, len);
+        count += len;
+        return this;
+    }
+
+    /**
+     * Appends "true" or "false"
+     * @param bool The boolean
+     * @return This builder
+     */
+    public StringBuilder append(boolean bool)
+    {
+        return append(bool ? "true" : "false");
+    }
+
+    /**
+     * Appends a character
+     * @param ch The character
+     * @return This builder
+     */
+    public StringBuilder append(char ch)
+    {
+        if (count == value.length)
+            ensureCapacity(count + 1);
+
+        value[count++] = ch;
+        return this;
+    }
+
+    /**
+     * Appends the decimal representation of an integer
+     * @param inum The integer
+     * @return This builder
+     */
+    public StringBuilder append(int inum)
+    {
+        ensureCapacity(count + IntegerFormat.stringSize(inum));
+        count = IntegerFormat.getChars(inum, value, count);
+        return this;
+    }
+
+    /**
+     * Appends the decimal representation of a long integer
+     * @param lnum The long integer
+     * @return This builder
+     */
+    public StringBuilder append(long lnum)
+    {
+        ensureCapacity(count + IntegerFormat.stringSize(lnum));
+        count = IntegerFormat.getChars(lnum, value, count);
+        return this;
+    }
+
+    /**
+     * Appends the string representation of a float
+     * @param fnum The float
+     * @return This builder
+     * @see Float#toString(float)
+     */
+    public StringBuilder append(float fnum)
+    {
+        ensureCapacity(count + DoubleFormat.MAX_FLOAT_CHARS);
+        count = DoubleFormat.getChars(fnum, value, count);
+        return this;
+    }
+
+    /**
+     * Appends the string representation of a double
+     * @param dnum The double
+     * @return This builder
+     * @see Double#toString(double)
+     */
+    public StringBuilder append(double dnum)
+    {
+        ensureCapacity(count + DoubleFormat.MAX_DOUBLE_CHARS);
+        count = DoubleFormat.getChars(dnum, value, count);
+        return this;
+    }
+
+    /**
+     * Deletes a range of characters, <code>end</code> may be larger than the
+     * length of the builder
+     * @param start The index of the first character to delete
+     * @param end The index after the last character to delete
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if start or end is invalid
+     */
+    public StringBuilder delete(int start, int end)
+    {
+        if (start < 0 || start > count || start > end)
+            throw new StringIndexOutOfBoundsException();
+
+        if (end > count)
+            end = count;
+
+        System.arraycopy(value, end, value, start, count - end);
+        count -= end - start;
+        return this;
+    }
+
+    /**
+     * Deletes one character
+     * @param index The index of the character to delete
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if index is invalid
+     */
+    public StringBuilder deleteCharAt(int index)
+    {
+        return delete(index, index + 1);
+    }
+
+    /**
+     * Inserts the string representation of an object, or "null"
+     * @param offset The insertion index
+     * @param obj The object
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if offset is invalid
+     */
+    public StringBuilder insert(int offset, Object obj)
+    {
+        return insert(offset, obj == null ? "null" : obj.toString());
+    }
+
+    /**
+     * Inserts a string, or "null"
+     * @param offset The insertion index
+     * @param str The string
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if offset is invalid
+     */
+    public StringBuilder insert(int offset, String str)
+    {
+        if (offset < 0 || offset > count)
+            throw new StringIndexOutOfBoundsException();
+
+        if (str == null)
+            str = "null";
+
+        int len = str.length();
+
+        ensureCapacity(count + len);
+        System.arraycopy(value, offset, value, offset + len, count - offset);
+        str.getChars(0, len, value, offset);
+        count += len;
+        return this;
+    }
+
+    /**
+     * Inserts an array of characters
+     * @param offset The insertion index
+     * @param data The characters
+     * @return This builder
+     * @throws NullPointerException if data is null
+     * @throws StringIndexOutOfBoundsException if offset is invalid
+     */
+    public StringBuilder insert(int offset, char[] data)
+    {
+        if (offset < 0 || offset > count)
+            throw new StringIndexOutOfBoundsException();
+
+        int len = data.length;
+
+        ensureCapacity(count + len);
+        System.arraycopy(value, offset, value, offset + len, count - offset);
+        System.arraycopy(data, 0, value, offset, len);
+        count += len;
+        return this;
+    }
+
+    /**
+     * Inserts "true" or "false"
+     * @param offset The insertion index
+     * @param bool The boolean
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if offset is invalid
+     */
+    public StringBuilder insert(int offset, boolean bool)
+    {
+        return insert(offset, bool ? "true" : "false");
+    }
+
+    /**
+     * Inserts a character
+     * @param offset The insertion index
+     * @param ch The character
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if offset is invalid
+     */
+    public StringBuilder insert(int offset, char ch)
+    {
+        if (offset < 0 || offset > count)
+            throw new StringIndexOutOfBoundsException();
+
+        ensureCapacity(count + 1);
+        System.arraycopy(value, offset, value, offset + 1, count - offset);
+        value[offset] = ch;
+        count++;
+        return this;
+    }
+
+    /**
+     * Inserts the decimal representation of an integer
+     * @param offset The insertion index
+     * @param inum The integer
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if offset is invalid
+     */
+    public StringBuilder insert(int offset, int inum)
+    {
+        if (offset < 0 || offset > count)
+            throw new StringIndexOutOfBoundsException();
+
+        int len = IntegerFormat.stringSize(inum);
+
+        ensureCapacity(count + len);
+        System.arraycopy(value, offset, value, offset + len, count - offset);
+        IntegerFormat.getChars(inum, value, offset);
+        count += len;
+        return this;
+    }
+
+    /**
+     * Inserts the decimal representation of a long integer
+     * @param offset The insertion index
+     * @param lnum The long integer
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if offset is invalid
+     */
+    public StringBuilder insert(int offset, long lnum)
+    {
+        if (offset < 0 || offset > count)
+            throw new StringIndexOutOfBoundsException();
+
+        int len = IntegerFormat.stringSize(lnum);
+
+        ensureCapacity(count + len);
+        System.arraycopy(value, offset, value, offset + len, count - offset);
+        IntegerFormat.getChars(lnum, value, offset);
+        count += len;
+        return this;
+    }
+
+    /**
+     * Inserts the string representation of a float
+     * @param offset The insertion index
+     * @param fnum The float
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if offset is invalid
+     */
+    public StringBuilder insert(int offset, float fnum)
+    {
+        return insert(offset, Float.toString(fnum));
+    }
+
+    /**
+     * Inserts the string representation of a double
+     * @param offset The insertion index
+     * @param dnum The double
+     * @return This builder
+     * @throws StringIndexOutOfBoundsException if offset is invalid
+     */
+    public StringBuilder insert(int offset, double dnum)
+    {
+        return insert(offset, Double.toString(dnum));
+    }
+
+    /**
+     * Reverses the order of the characters
+     * @return This builder
+     */
+    public StringBuilder reverse()
+    {
+        for (int i = 0, j = count - 1; i < j; i++, j--)
+        {
+            char c = value[i];
+
+            value[i] = value[j];
+            value[j] = c;
+        }
+
+        return this;
+    }
+
+    /**
+     * Creates a string holding a copy of the characters of the builder
+     * @return A new string
+     */
+    public String toString()
+    {
+        return new String(value, 0, count);
+    }
+}
@@ -0,0 +1,473 @@
+/***************************************************************************
+ *   This file is part of Jelatine.                                        *
+ *                                                                         *
+ *   Jelatine is free software: you can redistribute it and/or modify      *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation, either version 3 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   Jelatine is distributed in the hope that it will be useful,           *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with Jelatine.  If not, see <http://www.gnu.org/licenses/>.     *
+ ***************************************************************************/
+
+
+
+package jelatine.text;
+
+/**
+ * Substring search using the Boyer-Moore-Horspool algorithm. A searcher
+ * precomputes the shift tables of its pattern once so that it can be reused
+ * to scan many texts, either character arrays, strings or byte buffers whose
+ * bytes are taken as ISO-8859-1 characters. The static methods are used by
+ * {@link String#indexOf(String, int)} and {@link String#lastIndexOf(String,
+ * int)} for one-off searches.
+ *
+ * Shift tables are indexed by the low eight bits of a character, characters
+ * sharing a slot get the smallest of their shifts which keeps the search
+ * correct for any text.
+ */
+public final class StringSearcher
+{
+    /** Size of the shift tables */
+    private static final int TABLE_SIZE = 256;
+
+    /** Patterns shorter than this are searched without shift tables */
+    private static final int MIN_PATTERN = 3;
+
+    /** Texts shorter than this are searched without shift tables */
+    private static final int MIN_TEXT = 128;
+
+    /** The pattern characters */
+    private final char[] pattern;
+
+    /** Forward shift table */
+    private final int[] skip;
+
+    /** Backward shift table, built on the first backward search */
+    private int[] backSkip;
+
+    /**
+     * Creates a searcher for the specified pattern
+     * @param pattern The string to search for
+     * @throws NullPointerException if pattern is null
+     */
+    public StringSearcher(String pattern)
+    {
+        this.pattern = pattern.toCharArray();
+        skip = forwardTable(this.pattern, 0, this.pattern.length);
+    }
+
+    /**
+     * Returns the length of the pattern
+     * @return The number of characters in the pattern
+     */
+    public int length()
+    {
+        return pattern.length;
+    }
+
+    /**
+     * Returns the pattern of this searcher
+     * @return A new string holding the pattern
+     */
+    public String toString()
+    {
+        return new String(pattern);
+    }
+
+    /**
+     * Finds the first occurrence of the pattern in a character array
+     * @param text The array to search
+     * @param offset The index of the first character of the text
+     * @param count The number of characters in the text
+     * @param fromIndex The index in the text where the search starts
+     * @return The index of the occurrence relative to <code>offset</code>, or
+     * -1 if the pattern is not found
+     */
+    public int indexIn(char[] text, int offset, int count, int fromIndex)
+    {
+        return forward(text, offset, count, pattern, 0, pattern.length,
+                       fromIndex, skip);
+    }
+
+    /**
+     * Finds the last occurrence of the pattern in a character array which
+     * starts at or before the specified index
+     * @param text The array to search
+     * @param offset The index of the first character of the text
+     * @param count The number of characters in the text
+     * @param fromIndex The index in the text where the search starts
+     * @return The index of the occurrence relative to <code>offset</code>, or
+     * -1 if the pattern is not found
+     */
+    public int lastIndexIn(char[] text, int offset, int count, int fromIndex)
+    {
+        if (backSkip == null)
+            backSkip = backwardTable(pattern, 0, pattern.length);
+
+        return backward(text, offset, count, pattern, 0, pattern.length,
+                        fromIndex, backSkip);
+    }
+
+    /**
+     * Finds the first occurrence of the pattern in a string
+     * @param text The string to search
+     * @param fromIndex The index where the search starts
+     * @return The index of the occurrence, or -1 if the pattern is not found
+     */
+    public int indexIn(String text, int fromIndex)
+    {
+        int len = pattern.length;
+        int last = len - 1;
+        int end = text.length() - len;
+
+        if (fromIndex < 0)
+            fromIndex = 0;
+
+        if (len == 0)
+            return (fromIndex < end) ? fromIndex : end;
+
+        char lastChar = pattern[last];
+
+        while (fromIndex <= end)
+        {
+            char c = text.charAt(fromIndex + last);
+
+            if (c == lastChar)
+            {
+                int j = 0;
+
+                while (j < last && text.charAt(fromIndex + j) == pattern[j])
+                    j++;
+
+                if (j == last)
+                    return fromIndex;
+            }
+
+            fromIndex += skip[c & (TABLE_SIZE - 1)];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the last occurrence of the pattern in a string which starts at
+     * or before the specified index
+     * @param text The string to search
+     * @param fromIndex The index where the search starts
+     * @return The index of the occurrence, or -1 if the pattern is not found
+     */
+    public int lastIndexIn(String text, int fromIndex)
+    {
+        int len = pattern.length;
+        int end = text.length() - len;
+
+        if (fromIndex > end)
+            fromIndex = end;
+
+        if (fromIndex < 0)
+            return -1;
+        else if (len == 0)
+            return fromIndex;
+
+        if (backSkip == null)
+            backSkip = backwardTable(pattern, 0, len);
+
+        char firstChar = pattern[0];
+
+        while (fromIndex >= 0)
+        {
+            char c = text.charAt(fromIndex);
+
+            if (c == firstChar)
+            {
+                int j = 1;
+
+                while (j < len && text.charAt(fromIndex + j) == pattern[j])
+                    j++;
+
+                if (j == len)
+                    return fromIndex;
+            }
+
+            fromIndex -= backSkip[c & (TABLE_SIZE - 1)];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence of the pattern in a byte buffer. Each byte
+     * is taken as an ISO-8859-1 character, pattern characters outside that
+     * range never match.
+     * @param text The buffer to search
+     * @param offset The index of the first byte of the text
+     * @param count The number of bytes in the text
+     * @param fromIndex The index in the text where the search starts
+     * @return The index of the occurrence relative to <code>offset</code>, or
+     * -1 if the pattern is not found
+     */
+    public int indexIn(byte[] text, int offset, int count, int fromIndex)
+    {
+        int len = pattern.length;
+        int last = len - 1;
+        int end = offset + count - len;
+
+        if (fromIndex < 0)
+            fromIndex = 0;
+
+        if (len == 0)
+            return (fromIndex < count) ? fromIndex : count;
+
+        char lastChar = pattern[last];
+        int i = offset + fromIndex;
+
+        while (i <= end)
+        {
+            int c = text[i + last] & 0xff;
+
+            if (c == lastChar)
+            {
+                int j = 0;
+
+                while (j < last && (text[i + j] & 0xff) == pattern[j])
+                    j++;
+
+                if (j == last)
+                    return i - offset;
+            }
+
+            i += skip[c];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the last occurrence of the pattern in a byte buffer which starts
+     * at or before the specified index. Each byte is taken as an ISO-8859-1
+     * character, pattern characters outside that range never match.
+     * @param text The buffer to search
+     * @param offset The index of the first byte of the text
+     * @param count The number of bytes in the text
+     * @param fromIndex The index in the text where the search starts
+     * @return The index of the occurrence relative to <code>offset</code>, or
+     * -1 if the pattern is not found
+     */
+    public int lastIndexIn(byte[] text, int offset, int count, int fromIndex)
+    {
+        int len = pattern.length;
+        int max = count - len;
+
+        if (fromIndex > max)
+            fromIndex = max;
+
+        if (fromIndex < 0)
+            return -1;
+        else if (len == 0)
+            return fromIndex;
+
+        if (backSkip == null)
+            backSkip = backwardTable(pattern, 0, len);
+
+        char firstChar = pattern[0];
+        int i = offset + fromIndex;
+
+        while (i >= offset)
+        {
+            int c = text[i] & 0xff;
+
+            if (c == firstChar)
+            {
+                int j = 1;
+
+                while (j < len && (text[i + j] & 0xff) == pattern[j])
+                    j++;
+
+                if (j == len)
+                    return i - offset;
+            }
+
+            i -= backSkip[c];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence of a pattern in a character array. Used by
+     * {@link String#indexOf(String, int)}.
+     * @param text The array to search
+     * @param offset The index of the first character of the text
+     * @param count The number of characters in the text
+     * @param pat The array holding the pattern
+     * @param patOffset The index of the first character of the pattern
+     * @param patCount The number of characters in the pattern
+     * @param fromIndex The index in the text where the search starts
+     * @return The index of the occurrence relative to <code>offset</code>, or
+     * -1 if the pattern is not found
+     */
+    public static int indexOf(char[] text, int offset, int count, char[] pat,
+                              int patOffset, int patCount, int fromIndex)
+    {
+        int[] table = null;
+
+        if (patCount >= MIN_PATTERN && count - fromIndex >= MIN_TEXT)
+            table = forwardTable(pat, patOffset, patCount);
+
+        return forward(text, offset, count, pat, patOffset, patCount,
+                       fromIndex, table);
+    }
+
+    /**
+     * Finds the last occurrence of a pattern in a character array which
+     * starts at or before the specified index. Used by
+     * {@link String#lastIndexOf(String, int)}.
+     * @param text The array to search
+     * @param offset The index of the first character of the text
+     * @param count The number of characters in the text
+     * @param pat The array holding the pattern
+     * @param patOffset The index of the first character of the pattern
+     * @param patCount The number of characters in the pattern
+     * @param fromIndex The index in the text where the search starts
+     * @return The index of the occurrence relative to <code>offset</code>, or
+     * -1 if the pattern is not found
+     */
+    public static int lastIndexOf(char[] text, int offset, int count,
+                                  char[] pat, int patOffset, int patCount,
+                                  int fromIndex)
+    {
+        int[] table = null;
+
+        if (patCount >= MIN_PATTERN && fromIndex >= MIN_TEXT)
+            table = backwardTable(pat, patOffset, patCount);
+
+        return backward(text, offset, count, pat, patOffset, patCount,
+                        fromIndex, table);
+    }
+
+    /**
+     * Builds the forward shift table of a pattern: the distance between the
+     * last occurrence of each character (excluding the final position) and
+     * the end of the pattern.
+     */
+    private static int[] forwardTable(char[] pat, int off, int len)
+    {
+        int[] table = new int[TABLE_SIZE];
+        int last = len - 1;
+
+        for (int i = 0; i < TABLE_SIZE; i++)
+            table[i] = (len > 0) ? len : 1;
+
+        for (int i = 0; i < last; i++)
+            table[pat[off + i] & (TABLE_SIZE - 1)] = last - i;
+
+        return table;
+    }
+
+    /**
+     * Builds the backward shift table of a pattern: the distance between the
+     * beginning of the pattern and the first occurrence of each character
+     * (excluding the first position).
+     */
+    private static int[] backwardTable(char[] pat, int off, int len)
+    {
+        int[] table = new int[TABLE_SIZE];
+
+        for (int i = 0; i < TABLE_SIZE; i++)
+            table[i] = (len > 0) ? len : 1;
+
+        for (int i = len - 1; i > 0; i--)
+            table[pat[off + i] & (TABLE_SIZE - 1)] = i;
+
+        return table;
+    }
+
+    /**
+     * Forward search, if <code>table</code> is null the window is advanced
+     * one character at a time.
+     */
+    private static int forward(char[] text, int offset, int count,
+                               char[] pat, int patOffset, int patCount,
+                               int fromIndex, int[] table)
+    {
+        int last = patCount - 1;
+        int end = offset + count - patCount;
+
+        if (fromIndex < 0)
+            fromIndex = 0;
+
+        if (patCount == 0)
+            return (fromIndex < count) ? fromIndex : count;
+
+        char lastChar = pat[patOffset + last];
+        int i = offset + fromIndex;
+
+        while (i <= end)
+        {
+            char c = text[i + last];
+
+            if (c == lastChar)
+            {
+                int j = 0;
+
+                while (j < last && text[i + j] == pat[patOffset + j])
+                    j++;
+
+                if (j == last)
+                    return i - offset;
+            }
+
+            i += (table == null) ? 1 : table[c & (TABLE_SIZE - 1)];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Backward search, if <code>table</code> is null the window is moved
+     * back one character at a time.
+     */
+    private static int backward(char[] text, int offset, int count,
+                                char[] pat, int patOffset, int patCount,
+                                int fromIndex, int[] table)
+    {
+        int max = count - patCount;
+
+        if (fromIndex > max)
+            fromIndex = max;
+
+        if (fromIndex < 0)
+            return -1;
+        else if (patCount == 0)
+            return fromIndex;
+
+        char firstChar = pat[patOffset];
+        int i = offset + fromIndex;
+
+        while (i >= offset)
+        {
+            char c = text[i];
+
+            if (c == firstChar)
+            {
+                int j = 1;
+
+                while (j < patCount && text[i + j] == pat[patOffset + j])
+                    j++;
+
+                if (j == patCount)
+                    return i - offset;
+            }
+
+            i -= (table == null) ? 1 : table[c & (TABLE_SIZE - 1)];
+        }
+
+        return -1;
+    }
+}